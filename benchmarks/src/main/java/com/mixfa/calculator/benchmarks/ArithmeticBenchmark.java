@@ -0,0 +1,106 @@
+package com.mixfa.calculator.benchmarks;
+
+import com.mixfa.calculator.MathCompare;
+import com.mixfa.calculator.MathComponent.Value;
+import com.mixfa.calculator.MathUtils;
+import com.mixfa.calculator.ValueFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.concurrent.TimeUnit;
+
+// each MathUtils operation and MathCompare on every kind of Value, and the remainder check behind division
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"--enable-preview", "--add-modules", "jdk.incubator.vector"})
+public class ArithmeticBenchmark {
+    @Param({"long", "bigint", "decimal", "ratio"})
+    String kind;
+
+    private Value a;
+    private Value b;
+    private final Value exponent = ValueFactory.toValue(7);
+
+    // a terminating and a repeating quotient
+    private final BigDecimal terminating = new BigDecimal("1024");
+    private final BigDecimal repeating = new BigDecimal("7");
+    private final BigInteger bigTerminating = BigInteger.TWO.pow(200);
+    private final BigInteger bigRepeating = BigInteger.TWO.pow(200).add(BigInteger.ONE);
+
+    @Setup
+    public void setup() {
+        switch (kind) {
+            case "long" -> {
+                a = ValueFactory.toValue(123_456_789);
+                b = ValueFactory.toValue(987);
+            }
+            case "bigint" -> {
+                a = ValueFactory.toValue(BigInteger.TEN.pow(40).add(BigInteger.valueOf(12345)));
+                b = ValueFactory.toValue(BigInteger.TWO.pow(70).add(BigInteger.ONE));
+            }
+            case "decimal" -> {
+                a = ValueFactory.toValue("12345.6789");
+                b = ValueFactory.toValue("3.14159");
+            }
+            case "ratio" -> {
+                a = ValueFactory.ratio(ValueFactory.toValue(1), ValueFactory.toValue(3));
+                b = ValueFactory.ratio(ValueFactory.toValue(22), ValueFactory.toValue(7));
+            }
+            default -> throw new IllegalArgumentException("Unknown kind " + kind);
+        }
+    }
+
+    @Benchmark
+    public Value add() {
+        return MathUtils.add(a, b);
+    }
+
+    @Benchmark
+    public Value subtract() {
+        return MathUtils.subtract(a, b);
+    }
+
+    @Benchmark
+    public Value multiply() {
+        return MathUtils.multiply(a, b);
+    }
+
+    @Benchmark
+    public Value divide() {
+        return MathUtils.divide(a, b);
+    }
+
+    @Benchmark
+    public Value power() {
+        return MathUtils.power(a, exponent);
+    }
+
+    @Benchmark
+    public int compare() {
+        return MathCompare.compareTo(a, b);
+    }
+
+    @Benchmark
+    public boolean repeatingRemainderDecimal() {
+        return MathUtils.isRepeatingRemainder(BigDecimal.ONE, repeating) ^ MathUtils.isRepeatingRemainder(BigDecimal.ONE, terminating);
+    }
+
+    @Benchmark
+    public boolean repeatingRemainderInteger() {
+        return MathUtils.isRepeatingRemainder(BigInteger.ONE, bigRepeating) ^ MathUtils.isRepeatingRemainder(BigInteger.ONE, bigTerminating);
+    }
+}
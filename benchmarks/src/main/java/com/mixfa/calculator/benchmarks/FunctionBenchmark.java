@@ -0,0 +1,53 @@
+package com.mixfa.calculator.benchmarks;
+
+import com.mixfa.calculator.FunctionComponent;
+import com.mixfa.calculator.MathComponent.Value;
+import com.mixfa.calculator.SymbolTable;
+import com.mixfa.calculator.ValueFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.MathContext;
+import java.util.concurrent.TimeUnit;
+
+// the default functions called directly, at the default and at higher precisions
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"--enable-preview", "--add-modules", "jdk.incubator.vector"})
+public class FunctionBenchmark {
+    @Param({"sin", "cos", "tan", "sqrt", "ln", "log2", "log10", "pow", "gcd", "lcm"})
+    String function;
+
+    @Param({"34", "100", "500"})
+    int precision;
+
+    private FunctionComponent component;
+    private Value[] args;
+
+    @Setup
+    public void setup() {
+        component = SymbolTable.defaults(new MathContext(precision)).function(function);
+        args = switch (function) {
+            case "pow" -> new Value[]{ValueFactory.toValue("2.5"), ValueFactory.toValue("1.7")};
+            case "gcd", "lcm" -> new Value[]{ValueFactory.toValue(1_234_567_890L), ValueFactory.toValue(987_654_321L)};
+            default -> new Value[]{ValueFactory.toValue("2.5")};
+        };
+    }
+
+    @Benchmark
+    public Value call() {
+        return component.apply(args);
+    }
+}
@@ -0,0 +1,77 @@
+package com.mixfa.calculator.benchmarks;
+
+import com.mixfa.calculator.CompiledExpression;
+import com.mixfa.calculator.EvaluationMode;
+import com.mixfa.calculator.MathComponent;
+import com.mixfa.calculator.MathComponent.Value;
+import com.mixfa.calculator.MathParser;
+import com.mixfa.calculator.Tokenizer;
+import com.mixfa.calculator.Tokens;
+import com.mixfa.calculator.ValueFactory;
+import com.mixfa.calculator.exception.MathParsingException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+// every stage from text to result through the public API: tokenizing, the whole parseInput (tree and
+// simplifier), compiling with a variable and evaluating the compiled expression in both modes
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"--enable-preview", "--add-modules", "jdk.incubator.vector"})
+public class PipelineBenchmark {
+    @Param({"deep", "wide", "functions"})
+    String shape;
+
+    private final MathParser parser = MathParser.defaultParser();
+    private String input;
+    private String variableInput;
+    private CompiledExpression exact;
+    private CompiledExpression dbl;
+    private final Value x = ValueFactory.toValue("1.5");
+
+    @Setup
+    public void setup() throws MathParsingException {
+        input = Shapes.of(shape, "1.5");
+        variableInput = Shapes.of(shape, "x");
+        exact = parser.compile(variableInput, "x");
+        dbl = parser.compile(variableInput, EvaluationMode.DOUBLE, "x");
+    }
+
+    @Benchmark
+    public Tokens tokenize() throws MathParsingException {
+        return Tokenizer.tokenize(input);
+    }
+
+    @Benchmark
+    public MathComponent parseInput() throws MathParsingException {
+        return parser.parseInput(input);
+    }
+
+    @Benchmark
+    public CompiledExpression compile() throws MathParsingException {
+        return parser.compile(variableInput, "x");
+    }
+
+    @Benchmark
+    public Value evaluateExact() {
+        return exact.evaluate(x);
+    }
+
+    @Benchmark
+    public double evaluateDouble() {
+        return dbl.evaluateDouble(1.5);
+    }
+}
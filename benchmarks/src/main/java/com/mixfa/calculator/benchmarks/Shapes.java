@@ -0,0 +1,49 @@
+package com.mixfa.calculator.benchmarks;
+
+// expression shapes shared by the suites, leaf is a number for the parsing benchmarks and a variable
+// for the evaluation ones, which would otherwise measure a tree the simplifier already folded
+final class Shapes {
+    private Shapes() {
+    }
+
+    static String of(String shape, String leaf) {
+        return switch (shape) {
+            case "deep" -> deep(leaf, 500);
+            case "wide" -> wide(leaf, 1000);
+            case "functions" -> functions(leaf, 50);
+            default -> throw new IllegalArgumentException("Unknown shape " + shape);
+        };
+    }
+
+    // every operation nested in the previous one, ((((x+1)*2)-3)/4)...
+    static String deep(String leaf, int depth) {
+        var operators = "+*-/";
+        var expression = new StringBuilder(leaf);
+        for (int i = 0; i < depth; i++)
+            expression.insert(0, '(').append(operators.charAt(i % 4)).append(i % 9 + 1).append(')');
+        return expression.toString();
+    }
+
+    // a flat sum of products, x*1 + x*2 + ...
+    static String wide(String leaf, int terms) {
+        var expression = new StringBuilder();
+        for (int i = 1; i <= terms; i++) {
+            if (i > 1)
+                expression.append('+');
+            expression.append(leaf).append('*').append(i);
+        }
+        return expression.toString();
+    }
+
+    // every default function, repeated
+    static String functions(String leaf, int repeats) {
+        var expression = new StringBuilder();
+        for (int i = 1; i <= repeats; i++) {
+            if (i > 1)
+                expression.append('+');
+            expression.append("sin(%1$s)+cos(%1$s*%2$d)+tan(%1$s/%2$d)+sqrt(%1$s+%2$d)+ln(%1$s+%2$d)+log2(%1$s+%2$d)+log10(%1$s+%2$d)+pow(%1$s,%2$d)+gcd(%3$d,%4$d)+lcm(%3$d,%4$d)"
+                    .formatted(leaf, i, 12 * i, 18 * i));
+        }
+        return expression.toString();
+    }
+}
@@ -1,15 +1,91 @@
 package com.mixfa;
 
 import com.mixfa.calculator.MathParser;
+import com.mixfa.calculator.MathParserBuilder;
+import com.mixfa.server.EvaluationServer;
 
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.math.MathContext;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+
+// java --enable-preview --add-modules jdk.incubator.vector -jar calculator-standalone.jar [file | -] [--threads n] [--window n] [--precision digits] [--serve port]
+// evaluates one expression per line of the file (stdin when missing or -), results go to stdout in
+// input order, the summary to stderr. With --serve port it runs the HTTP service on localhost instead
 public class Main {
+    private static final int BUFFER_SIZE = 1 << 20;
+
+    static void main(String[] args) throws Exception {
+        String file = null;
+        var threads = Runtime.getRuntime().availableProcessors();
+        var window = -1;
+        var precision = -1;
+        var serve = -1;
+
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--threads" -> threads = number(args, ++i);
+                case "--window" -> window = number(args, ++i);
+                case "--precision" -> precision = number(args, ++i);
+                case "--serve" -> serve = number(args, ++i);
+                default -> {
+                    if (file != null || args[i].startsWith("--"))
+                        usage("Unknown argument " + args[i]);
+                    file = args[i];
+                }
+            }
+        }
+
+        var parser = precision == -1
+                ? MathParser.defaultParser()
+                : new MathParserBuilder().addDefaults().withMathContext(new MathContext(precision)).build();
+        if (serve != -1) {
+            var server = EvaluationServer.start(parser, serve);
+            System.err.println("Listening on http://localhost:" + server.port());
+            return;
+        }
+
+        // enough lines in flight to keep every thread busy while the oldest one is written
+        var evaluator = new StreamingEvaluator(parser, threads, window == -1 ? threads * 64 : window);
+
+        var out = new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8), BUFFER_SIZE);
+        StreamingEvaluator.Summary summary;
+        if (file == null || file.equals("-")) {
+            summary = evaluator.run(new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8), BUFFER_SIZE), out);
+        } else {
+            try (var channel = FileChannel.open(Path.of(file));
+                 var in = new BufferedReader(Channels.newReader(channel, StandardCharsets.UTF_8), BUFFER_SIZE)) {
+                summary = evaluator.run(in, out);
+            }
+        }
+        System.err.println(summary);
+    }
+
+    private static int number(String[] args, int index) {
+        if (index >= args.length)
+            usage("Missing value for " + args[index - 1]);
+
+        int value;
+        try {
+            value = Integer.parseInt(args[index]);
+        } catch (NumberFormatException e) {
+            usage("Expected a number for " + args[index - 1] + ", got " + args[index]);
+            return -1;
+        }
+        if (value <= 0)
+            usage("Expected a positive number for " + args[index - 1] + ", got " + args[index]);
+        return value;
+    }
 
-    static void main() throws Exception {
-        var parser = MathParser.defaultParser();
-        var a = parser.parseInput("1-(-1)");
-        IO.println(a.toString());
-        IO.println(
-                a.calculate()
-        );
+    // prints the problem and the usage line to stderr and exits with status 2, never returns
+    private static void usage(String message) {
+        System.err.println(message);
+        System.err.println("usage: java --enable-preview --add-modules jdk.incubator.vector -jar calculator-standalone.jar [file | -] [--threads n] [--window n] [--precision digits] [--serve port]");
+        System.exit(2);
     }
 }
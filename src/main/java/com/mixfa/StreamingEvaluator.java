@@ -0,0 +1,158 @@
+package com.mixfa;
+
+import com.mixfa.calculator.MathParser;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayDeque;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+// evaluates expressions line by line from a reader, at most window lines are in flight at once and latencies
+// go into a fixed size histogram, so memory stays flat on inputs of any size. Results are written in input
+// order, one line each, failures as "error: message". Blank lines stay blank
+public final class StreamingEvaluator {
+    private final MathParser parser;
+    private final int threads;
+    private final int window;
+
+    public record Summary(long lines, long errors, long elapsedNanos, long p50Nanos, long p99Nanos, long maxNanos) {
+        public double linesPerSecond() {
+            return elapsedNanos == 0 ? 0 : lines * 1e9 / elapsedNanos;
+        }
+
+        @Override
+        public String toString() {
+            return "%d lines, %d errors in %.1f ms, %.0f lines/s, latency p50 %.1f us, p99 %.1f us, max %.1f us".formatted(
+                    lines, errors, elapsedNanos / 1e6, linesPerSecond(), p50Nanos / 1e3, p99Nanos / 1e3, maxNanos / 1e3);
+        }
+    }
+
+    private record Result(String text, boolean failed, long nanos) {
+    }
+
+    public StreamingEvaluator(MathParser parser, int threads, int window) {
+        if (threads < 1 || window < 1)
+            throw new IllegalArgumentException("Threads and window must be positive: " + threads + ", " + window);
+        this.parser = parser;
+        this.threads = threads;
+        this.window = window;
+    }
+
+    public Summary run(BufferedReader in, Writer out) throws IOException, InterruptedException {
+        var start = System.nanoTime();
+        var inFlight = new ArrayDeque<Future<Result>>(window);
+        var latencies = new Latencies();
+        var errors = 0L;
+
+        try (ExecutorService executor = Executors.newFixedThreadPool(threads)) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                if (inFlight.size() == window) {
+                    var result = take(inFlight);
+                    errors += write(result, out);
+                    latencies.record(result.nanos());
+                }
+                var input = line;
+                inFlight.add(executor.submit(() -> evaluate(input)));
+            }
+
+            while (!inFlight.isEmpty()) {
+                var result = take(inFlight);
+                errors += write(result, out);
+                latencies.record(result.nanos());
+            }
+        }
+        out.flush();
+
+        var elapsed = System.nanoTime() - start;
+        return new Summary(latencies.count, errors, elapsed, latencies.percentile(0.5), latencies.percentile(0.99), latencies.max);
+    }
+
+    private Result evaluate(String line) {
+        var start = System.nanoTime();
+        if (line.isBlank())
+            return new Result("", false, System.nanoTime() - start);
+
+        try {
+            var text = parser.evaluate(parser.parseInput(line)).toString();
+            return new Result(text, false, System.nanoTime() - start);
+        } catch (Exception e) {
+            return new Result("error: " + e.getMessage(), true, System.nanoTime() - start);
+        }
+    }
+
+    private static Result take(ArrayDeque<Future<Result>> inFlight) throws InterruptedException {
+        try {
+            return inFlight.poll().get();
+        } catch (ExecutionException e) {
+            // evaluate catches every exception, so the cause is an error unless the executor failed the task itself
+            switch (e.getCause()) {
+                case Error error -> throw error;
+                case RuntimeException exception -> throw exception;
+                case Throwable cause -> throw new CompletionException(cause);
+            }
+        }
+    }
+
+    private static int write(Result result, Writer out) throws IOException {
+        out.write(result.text());
+        out.write('\n');
+        return result.failed() ? 1 : 0;
+    }
+
+    // log-linear buckets: exact below 64 ns, above that 32 buckets per power of two, so a percentile is
+    // reported at most about 3% too high. Covers every long with under 2000 counters
+    private static final class Latencies {
+        private static final int SUB_BITS = 6;
+        private static final int LINEAR = 1 << SUB_BITS;
+        private static final int HALF = LINEAR / 2;
+
+        private final long[] counts = new long[LINEAR + (Long.SIZE - SUB_BITS) * HALF];
+        private long count;
+        private long max;
+
+        void record(long nanos) {
+            nanos = Math.max(0, nanos);
+            ++counts[index(nanos)];
+            ++count;
+            max = Math.max(max, nanos);
+        }
+
+        private static int index(long value) {
+            if (value < LINEAR)
+                return (int) value;
+
+            var shift = Long.SIZE - Long.numberOfLeadingZeros(value) - SUB_BITS;
+            return LINEAR + (shift - 1) * HALF + (int) (value >>> shift) - HALF;
+        }
+
+        // largest value that falls into the bucket
+        private static long upperBound(int index) {
+            if (index < LINEAR)
+                return index;
+
+            var shift = (index - LINEAR) / HALF + 1;
+            var sub = (index - LINEAR) % HALF + HALF;
+            return ((sub + 1L) << shift) - 1;
+        }
+
+        long percentile(double fraction) {
+            if (count == 0)
+                return 0;
+
+            var rank = Math.max(1, (long) Math.ceil(count * fraction));
+            var seen = 0L;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank)
+                    return Math.min(upperBound(i), max);
+            }
+            return max;
+        }
+    }
+}
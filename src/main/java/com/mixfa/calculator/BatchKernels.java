@@ -0,0 +1,53 @@
+package com.mixfa.calculator;
+
+// in place column operations, a[i] = a[i] op b[i] for i < length
+interface BatchKernels {
+    void add(double[] a, double[] b, int length);
+
+    void subtract(double[] a, double[] b, int length);
+
+    void multiply(double[] a, double[] b, int length);
+
+    void divide(double[] a, double[] b, int length);
+
+    void power(double[] a, double[] b, int length);
+
+    static BatchKernels available() {
+        if (ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent())
+            return VectorKernels.create();
+
+        return new ScalarKernels();
+    }
+
+    final class ScalarKernels implements BatchKernels {
+        @Override
+        public void add(double[] a, double[] b, int length) {
+            for (int i = 0; i < length; i++)
+                a[i] += b[i];
+        }
+
+        @Override
+        public void subtract(double[] a, double[] b, int length) {
+            for (int i = 0; i < length; i++)
+                a[i] -= b[i];
+        }
+
+        @Override
+        public void multiply(double[] a, double[] b, int length) {
+            for (int i = 0; i < length; i++)
+                a[i] *= b[i];
+        }
+
+        @Override
+        public void divide(double[] a, double[] b, int length) {
+            for (int i = 0; i < length; i++)
+                a[i] /= b[i];
+        }
+
+        @Override
+        public void power(double[] a, double[] b, int length) {
+            for (int i = 0; i < length; i++)
+                a[i] = Math.pow(a[i], b[i]);
+        }
+    }
+}
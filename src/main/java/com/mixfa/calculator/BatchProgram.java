@@ -0,0 +1,220 @@
+package com.mixfa.calculator;
+
+import com.mixfa.calculator.MathComponent.AnyOperation;
+import com.mixfa.calculator.MathComponent.FunctionCall;
+import com.mixfa.calculator.MathComponent.Value;
+import com.mixfa.calculator.MathComponent.Variable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Supplier;
+
+// postfix program over columns, every instruction processes a whole chunk of rows,
+// arithmetic goes through BatchKernels so it runs lane by lane with the Vector API when it is available
+class BatchProgram {
+    private static final Supplier<BatchKernels> KERNELS = StableValue.supplier(BatchKernels::available);
+    private static final int CHUNK = 1024;
+
+    private static final int CONSTANT = 0;
+    private static final int VARIABLE = 1;
+    private static final int ADD = 2;
+    private static final int SUBTRACT = 3;
+    private static final int MULTIPLY = 4;
+    private static final int DIVIDE = 5;
+    private static final int POWER = 6;
+    private static final int SQUARE = 7;
+    private static final int CALL = 8;
+    // exchanges the two top columns, operands of a reversed operation
+    private static final int SWAP = 9;
+    private static final int STORE = 10;
+    private static final int LOAD = 11;
+
+    private final int[] opcodes;
+    private final int[] operands;
+    private final double[] constants;
+    private final FunctionComponent[] functions;
+    private final int[] argsCounts;
+    private final int maxDepth;
+    private final int slots;
+
+    private BatchProgram(int[] opcodes, int[] operands, double[] constants, FunctionComponent[] functions, int[] argsCounts, int maxDepth, int slots) {
+        this.opcodes = opcodes;
+        this.operands = operands;
+        this.constants = constants;
+        this.functions = functions;
+        this.argsCounts = argsCounts;
+        this.maxDepth = maxDepth;
+        this.slots = slots;
+    }
+
+    private static final class Builder {
+        private int[] opcodes = new int[16];
+        private int[] operands = new int[16];
+        private int size;
+        private final List<Double> constants = new ArrayList<>();
+        private final List<FunctionComponent> functions = new ArrayList<>();
+        private final List<Integer> argsCounts = new ArrayList<>();
+        private int depth;
+        private int maxDepth;
+        private int slots;
+
+        private void add(int opcode, int operand, int depthChange) {
+            if (size == opcodes.length) {
+                opcodes = Arrays.copyOf(opcodes, size * 2);
+                operands = Arrays.copyOf(operands, size * 2);
+            }
+            opcodes[size] = opcode;
+            operands[size] = operand;
+            ++size;
+
+            depth += depthChange;
+            maxDepth = Math.max(maxDepth, depth);
+        }
+
+        // takes the order of the postfix program, so the stack of columns stays as small as its operand stack
+        private void emit(PostfixProgram program) {
+            for (int pc = 0; pc < program.size(); pc++) {
+                switch (program.opcode(pc)) {
+                    case PostfixProgram.CONSTANT -> {
+                        constants.add(DoubleCompiler.toDouble((Value) program.node(pc)));
+                        add(CONSTANT, constants.size() - 1, 1);
+                    }
+                    case PostfixProgram.VARIABLE -> add(VARIABLE, ((Variable) program.node(pc)).index(), 1);
+                    case PostfixProgram.OPERATION, PostfixProgram.REVERSED_OPERATION -> {
+                        if (program.opcode(pc) == PostfixProgram.REVERSED_OPERATION)
+                            add(SWAP, 0, 0);
+
+                        var operator = ((AnyOperation) program.node(pc)).operator();
+                        if (operator == Operator.POWER && opcodes[size - 1] == CONSTANT && constants.get(operands[size - 1]) == 2) {
+                            // x^2, the pushed exponent is dropped
+                            --size;
+                            --depth;
+                            add(SQUARE, 0, 0);
+                            continue;
+                        }
+
+                        var opcode = switch (operator) {
+                            case ADD -> ADD;
+                            case SUBTRACT -> SUBTRACT;
+                            case MULTIPLY -> MULTIPLY;
+                            case DIVIDE -> DIVIDE;
+                            case POWER -> POWER;
+                        };
+                        add(opcode, 0, -1);
+                    }
+                    case PostfixProgram.STORE -> add(STORE, program.operand(pc), 0);
+                    case PostfixProgram.LOAD -> add(LOAD, program.operand(pc), 1);
+                    case PostfixProgram.CALL -> {
+                        var call = (FunctionCall) program.node(pc);
+                        functions.add(call.function());
+                        argsCounts.add(call.args().size());
+                        add(CALL, functions.size() - 1, 1 - call.args().size());
+                    }
+                    default -> throw new IllegalStateException("Unknown opcode " + program.opcode(pc));
+                }
+            }
+        }
+
+        private BatchProgram build() {
+            return new BatchProgram(
+                    Arrays.copyOf(opcodes, size),
+                    Arrays.copyOf(operands, size),
+                    constants.stream().mapToDouble(Double::doubleValue).toArray(),
+                    functions.toArray(FunctionComponent[]::new),
+                    argsCounts.stream().mapToInt(Integer::intValue).toArray(),
+                    maxDepth,
+                    slots
+            );
+        }
+    }
+
+    public static BatchProgram compile(MathComponent root) {
+        var builder = new Builder();
+        var program = PostfixProgram.compile(root);
+        builder.slots = program.slots();
+        builder.emit(program);
+        return builder.build();
+    }
+
+    public void evaluate(double[][] columns, double[] out, int variablesCount) {
+        var rows = out.length;
+        if (columns.length < variablesCount)
+            throw new IllegalArgumentException("Expected " + variablesCount + " columns, got " + columns.length);
+        for (int i = 0; i < variablesCount; i++)
+            if (columns[i].length < rows)
+                throw new IllegalArgumentException("Column " + i + " has " + columns[i].length + " rows, expected " + rows);
+
+        var kernels = KERNELS.get();
+        var stack = new double[maxDepth][Math.min(CHUNK, rows)];
+        var slotColumns = new double[slots][Math.min(CHUNK, rows)];
+
+        for (int offset = 0; offset < rows; offset += CHUNK) {
+            var length = Math.min(CHUNK, rows - offset);
+            var top = -1;
+
+            for (int pc = 0; pc < opcodes.length; pc++) {
+                switch (opcodes[pc]) {
+                    case CONSTANT -> Arrays.fill(stack[++top], 0, length, constants[operands[pc]]);
+                    case VARIABLE -> System.arraycopy(columns[operands[pc]], offset, stack[++top], 0, length);
+                    case ADD -> kernels.add(stack[top - 1], stack[top--], length);
+                    case SUBTRACT -> kernels.subtract(stack[top - 1], stack[top--], length);
+                    case MULTIPLY -> kernels.multiply(stack[top - 1], stack[top--], length);
+                    case DIVIDE -> kernels.divide(stack[top - 1], stack[top--], length);
+                    case POWER -> kernels.power(stack[top - 1], stack[top--], length);
+                    case SQUARE -> kernels.multiply(stack[top], stack[top], length);
+                    case SWAP -> {
+                        var column = stack[top];
+                        stack[top] = stack[top - 1];
+                        stack[top - 1] = column;
+                    }
+                    case STORE -> System.arraycopy(stack[top], 0, slotColumns[operands[pc]], 0, length);
+                    case LOAD -> System.arraycopy(slotColumns[operands[pc]], 0, stack[++top], 0, length);
+                    case CALL -> top = call(functions[operands[pc]], argsCounts[operands[pc]], stack, top, length);
+                    default -> throw new IllegalStateException("Unknown opcode " + opcodes[pc]);
+                }
+            }
+
+            System.arraycopy(stack[0], 0, out, offset, length);
+        }
+    }
+
+    // functions are applied row by row, their arguments are the top columns of the stack
+    private static int call(FunctionComponent function, int argsCount, double[][] stack, int top, int length) {
+        switch (function) {
+            case FunctionComponent.FunctionComponent0 fc0 when fc0.doubleFunction() != null -> {
+                var column = stack[++top];
+                for (int i = 0; i < length; i++)
+                    column[i] = fc0.doubleFunction().getAsDouble();
+                return top;
+            }
+            case FunctionComponent.FunctionComponent1 fc1 when fc1.doubleFunction() != null -> {
+                var column = stack[top];
+                var doubleFunction = fc1.doubleFunction();
+                for (int i = 0; i < length; i++)
+                    column[i] = doubleFunction.applyAsDouble(column[i]);
+                return top;
+            }
+            case FunctionComponent.FunctionComponent2 fc2 when fc2.doubleFunction() != null -> {
+                var a = stack[top - 1];
+                var b = stack[top];
+                var doubleFunction = fc2.doubleFunction();
+                for (int i = 0; i < length; i++)
+                    a[i] = doubleFunction.applyAsDouble(a[i], b[i]);
+                return top - 1;
+            }
+            default -> {
+            }
+        }
+
+        var first = top - argsCount + 1;
+        var args = new double[argsCount];
+        var result = argsCount == 0 ? stack[++top] : stack[first];
+        for (int i = 0; i < length; i++) {
+            for (int arg = 0; arg < argsCount; arg++)
+                args[arg] = stack[first + arg][i];
+            result[i] = DoubleCompiler.apply(function, args);
+        }
+        return argsCount == 0 ? top : first;
+    }
+}
@@ -0,0 +1,53 @@
+package com.mixfa.calculator;
+
+import java.util.Arrays;
+
+public final class Bindings {
+    private final String[] names;
+    private final MathComponent.Value[] values;
+
+    Bindings(String[] names) {
+        this.names = names;
+        this.values = new MathComponent.Value[names.length];
+    }
+
+    private Bindings(MathComponent.Value[] values) {
+        this.names = null;
+        this.values = values;
+    }
+
+    public static Bindings of(MathComponent.Value... values) {
+        return new Bindings(values.clone());
+    }
+
+    public Bindings set(int index, MathComponent.Value value) {
+        values[index] = value;
+        return this;
+    }
+
+    public Bindings set(String name, MathComponent.Value value) {
+        if (names != null)
+            for (int i = 0; i < names.length; i++)
+                if (names[i].equals(name))
+                    return set(i, value);
+
+        throw new IllegalArgumentException("Unknown variable " + name);
+    }
+
+    public int size() {
+        return values.length;
+    }
+
+    MathComponent.Value get(int index, String name) {
+        var value = index < values.length ? values[index] : null;
+        if (value == null)
+            throw new IllegalArgumentException("Variable not bound: " + name);
+
+        return value;
+    }
+
+    @Override
+    public String toString() {
+        return names == null ? Arrays.toString(values) : Arrays.toString(names) + "=" + Arrays.toString(values);
+    }
+}
@@ -0,0 +1,114 @@
+package com.mixfa.calculator;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+// size bounded LRU cache, split into independently locked segments so concurrent readers rarely contend
+public final class BoundedCache<K, V> {
+    private static final int MAX_SEGMENTS = 16;
+
+    private final Segment[] segments;
+    private final int segmentMask;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    private final class Segment extends LinkedHashMap<K, V> {
+        private final int capacity;
+
+        private Segment(int capacity) {
+            super(16, 0.75f, true);
+            this.capacity = capacity;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+            if (size() <= capacity)
+                return false;
+
+            evictions.increment();
+            return true;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    public BoundedCache(int maximumSize) {
+        if (maximumSize <= 0)
+            throw new IllegalArgumentException("Cache size must be positive: " + maximumSize);
+
+        // every segment keeps at least 64 entries, so small caches stay close to exact LRU
+        var segmentsCount = Math.min(MAX_SEGMENTS, Integer.highestOneBit(Math.max(1, maximumSize / 64)));
+        var segmentCapacity = (maximumSize + segmentsCount - 1) / segmentsCount;
+
+        this.segments = (Segment[]) java.lang.reflect.Array.newInstance(Segment.class, segmentsCount);
+        for (int i = 0; i < segmentsCount; i++)
+            segments[i] = new Segment(segmentCapacity);
+        this.segmentMask = segmentsCount - 1;
+    }
+
+    private Segment segment(Object key) {
+        var hash = key.hashCode();
+        return segments[(hash ^ (hash >>> 16)) & segmentMask];
+    }
+
+    public V get(K key) {
+        var segment = segment(key);
+        V value;
+        synchronized (segment) {
+            value = segment.get(key);
+        }
+
+        if (value == null)
+            misses.increment();
+        else
+            hits.increment();
+        return value;
+    }
+
+    public void put(K key, V value) {
+        var segment = segment(key);
+        synchronized (segment) {
+            segment.put(key, value);
+        }
+    }
+
+    // the loader runs outside the lock, two threads missing the same key may both load it,
+    // the first value stored wins and is returned to both
+    public V computeIfAbsent(K key, Function<? super K, ? extends V> loader) {
+        var value = get(key);
+        if (value != null)
+            return value;
+
+        value = loader.apply(key);
+        if (value == null)
+            return null;
+
+        var segment = segment(key);
+        synchronized (segment) {
+            var stored = segment.putIfAbsent(key, value);
+            return stored != null ? stored : value;
+        }
+    }
+
+    public long size() {
+        long size = 0;
+        for (Segment segment : segments)
+            synchronized (segment) {
+                size += segment.size();
+            }
+        return size;
+    }
+
+    public void clear() {
+        for (Segment segment : segments)
+            synchronized (segment) {
+                segment.clear();
+            }
+    }
+
+    public CacheStats stats() {
+        return new CacheStats(hits.sum(), misses.sum(), evictions.sum(), size());
+    }
+}
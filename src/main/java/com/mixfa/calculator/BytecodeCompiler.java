@@ -0,0 +1,341 @@
+package com.mixfa.calculator;
+
+import com.mixfa.calculator.MathComponent.AnyOperation;
+import com.mixfa.calculator.MathComponent.FunctionCall;
+import com.mixfa.calculator.MathComponent.Value;
+import com.mixfa.calculator.MathComponent.Variable;
+
+import java.lang.classfile.ClassFile;
+import java.lang.classfile.CodeBuilder;
+import java.lang.classfile.TypeKind;
+import java.lang.constant.ClassDesc;
+import java.lang.constant.ConstantDescs;
+import java.lang.constant.DynamicConstantDesc;
+import java.lang.constant.MethodTypeDesc;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.math.MathContext;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.DoubleBinaryOperator;
+import java.util.function.DoubleSupplier;
+import java.util.function.DoubleUnaryOperator;
+
+import static java.lang.constant.ConstantDescs.CD_boolean;
+import static java.lang.constant.ConstantDescs.CD_double;
+
+// compiles a tree into a single method of a hidden class, so the JIT sees the whole formula as straight-line code.
+// constants and functions are passed as class data and loaded with ldc, which the JIT treats as constants
+class BytecodeCompiler {
+    // every node emits a few bytes at most, this keeps generated methods far below the 64k code size limit
+    private static final int MAX_NODES = 4_000;
+    // code is emitted recursively, one frame per level
+    private static final int MAX_DEPTH = 256;
+
+    private static final ClassDesc CD_VALUE = desc(Value.class);
+    private static final ClassDesc CD_MATH_COMPONENT = desc(MathComponent.class);
+    private static final ClassDesc CD_FUNCTION_COMPONENT = desc(FunctionComponent.class);
+    private static final ClassDesc CD_FUNCTION_CALL = desc(FunctionCall.class);
+    private static final ClassDesc CD_POSTFIX_PROGRAM = desc(PostfixProgram.class);
+    private static final ClassDesc CD_CALCULATOR_EVENTS = desc(CalculatorEvents.class);
+    private static final ClassDesc CD_MATH_UTILS = desc(MathUtils.class);
+    private static final ClassDesc CD_DOUBLE_COMPILER = desc(DoubleCompiler.class);
+    private static final ClassDesc CD_MATH = desc(Math.class);
+    private static final ClassDesc CD_COMPILED = ClassDesc.of(BytecodeCompiler.class.getPackageName(), "CompiledFormula");
+
+    private static final ClassDesc CD_MATH_CONTEXT = desc(MathContext.class);
+    private static final MethodTypeDesc MTD_OPERATION = MethodTypeDesc.of(CD_VALUE, CD_MATH_COMPONENT, CD_MATH_COMPONENT);
+    private static final MethodTypeDesc MTD_INEXACT_OPERATION = MethodTypeDesc.of(CD_VALUE, CD_MATH_COMPONENT, CD_MATH_COMPONENT, CD_MATH_CONTEXT);
+    private static final MethodTypeDesc MTD_DOUBLE_BINARY = MethodTypeDesc.of(CD_double, CD_double, CD_double);
+
+    private final List<Object> classData = new ArrayList<>();
+    private final IdentityHashMap<Object, Integer> classDataIndexes = new IdentityHashMap<>();
+    // nodes used by more than one parent are computed once and kept in a local variable
+    private final IdentityHashMap<MathComponent, Integer> references;
+    private final IdentityHashMap<MathComponent, Integer> locals = new IdentityHashMap<>();
+    // 0 is this, 1 the variables array
+    private int nextLocal = 2;
+
+    private BytecodeCompiler(IdentityHashMap<MathComponent, Integer> references) {
+        this.references = references;
+    }
+
+    private static ClassDesc desc(Class<?> type) {
+        return type.describeConstable().orElseThrow();
+    }
+
+    // returns null when the tree is too large or too deep for a single method, callers fall back to the interpreter
+    public static DoubleExpression compileDouble(MathComponent root) {
+        var references = references(root);
+        if (references == null)
+            return null;
+
+        var compiler = new BytecodeCompiler(references);
+        return compiler.define(
+                DoubleExpression.class,
+                MethodTypeDesc.of(CD_double, CD_double.arrayType()),
+                codeBuilder -> {
+                    compiler.emitDouble(codeBuilder, root);
+                    codeBuilder.dreturn();
+                }
+        );
+    }
+
+    // function calls skip FunctionCall.apply, so while a recording traces calls the fallback program runs instead.
+    // The check is made once per evaluation, not once per call
+    public static ExactExpression compileExact(MathComponent root, PostfixProgram fallback) {
+        var references = references(root);
+        if (references == null)
+            return null;
+
+        var compiler = new BytecodeCompiler(references);
+        var hasCalls = references.keySet().stream().anyMatch(FunctionCall.class::isInstance);
+        return compiler.define(
+                ExactExpression.class,
+                MethodTypeDesc.of(CD_VALUE, CD_VALUE.arrayType()),
+                codeBuilder -> {
+                    if (hasCalls) {
+                        var compiled = codeBuilder.newLabel();
+                        codeBuilder
+                                .invokestatic(CD_CALCULATOR_EVENTS, "callsEnabled", MethodTypeDesc.of(CD_boolean))
+                                .ifeq(compiled);
+                        compiler.loadClassData(codeBuilder, fallback, CD_POSTFIX_PROGRAM);
+                        codeBuilder
+                                .aload(1)
+                                .invokevirtual(CD_POSTFIX_PROGRAM, "evaluate", MethodTypeDesc.of(CD_VALUE, CD_VALUE.arrayType()))
+                                .areturn()
+                                .labelBinding(compiled);
+                    }
+                    compiler.emitExact(codeBuilder, root);
+                    codeBuilder.areturn();
+                }
+        );
+    }
+
+    // number of parents of every inner node, null when the tree does not fit in one method
+    private static IdentityHashMap<MathComponent, Integer> references(MathComponent root) {
+        var references = new IdentityHashMap<MathComponent, Integer>();
+        var nodes = 0;
+        var stack = new ArrayDeque<MathComponent>();
+        var depths = new ArrayDeque<Integer>();
+        stack.push(root);
+        depths.push(1);
+        while (!stack.isEmpty()) {
+            var component = stack.pop();
+            var depth = depths.pop();
+            if (++nodes > MAX_NODES || depth > MAX_DEPTH)
+                return null;
+
+            switch (component) {
+                case AnyOperation operation -> {
+                    // same order as the emitter, so a shared node is expanded where it is emitted first
+                    if (references.merge(operation, 1, Integer::sum) == 1) {
+                        stack.push(operation.compB());
+                        stack.push(operation.compA());
+                        depths.push(depth + 1);
+                        depths.push(depth + 1);
+                    }
+                }
+                case FunctionCall call -> {
+                    if (references.merge(call, 1, Integer::sum) == 1)
+                        for (int i = call.args().size() - 1; i >= 0; i--) {
+                            stack.push(call.args().get(i));
+                            depths.push(depth + 1);
+                        }
+                }
+                case MathComponent.Unparsed unparsed -> {
+                    return null;
+                }
+                default -> {
+                }
+            }
+        }
+        return references;
+    }
+
+    private boolean shared(MathComponent component) {
+        return references.getOrDefault(component, 0) > 1;
+    }
+
+    private <T> T define(Class<T> type, MethodTypeDesc evaluateType, Consumer<CodeBuilder> body) {
+        var bytes = ClassFile.of().build(CD_COMPILED, classBuilder -> classBuilder
+                .withFlags(ClassFile.ACC_FINAL | ClassFile.ACC_SYNTHETIC)
+                .withInterfaceSymbols(desc(type))
+                .withMethodBody(ConstantDescs.INIT_NAME, ConstantDescs.MTD_void, ClassFile.ACC_PUBLIC, codeBuilder -> codeBuilder
+                        .aload(0)
+                        .invokespecial(ConstantDescs.CD_Object, ConstantDescs.INIT_NAME, ConstantDescs.MTD_void)
+                        .return_())
+                .withMethodBody("evaluate", evaluateType, ClassFile.ACC_PUBLIC | ClassFile.ACC_FINAL, body));
+
+        try {
+            var lookup = MethodHandles.lookup().defineHiddenClassWithClassData(bytes, List.copyOf(classData), true);
+            var constructor = lookup.findConstructor(lookup.lookupClass(), MethodType.methodType(void.class));
+            return type.cast(constructor.invoke());
+        } catch (Throwable e) {
+            throw new IllegalStateException("Cannot define compiled expression", e);
+        }
+    }
+
+    private void loadClassData(CodeBuilder codeBuilder, Object value, ClassDesc type) {
+        var index = classDataIndexes.computeIfAbsent(value, key -> {
+            classData.add(value);
+            return classData.size() - 1;
+        });
+
+        codeBuilder.loadConstant(DynamicConstantDesc.ofNamed(ConstantDescs.BSM_CLASS_DATA_AT, ConstantDescs.DEFAULT_NAME, type, index));
+    }
+
+    private void emitDouble(CodeBuilder codeBuilder, MathComponent component) {
+        var local = locals.get(component);
+        if (local != null) {
+            codeBuilder.dload(local);
+            return;
+        }
+
+        emitDoubleNode(codeBuilder, component);
+        if (shared(component)) {
+            locals.put(component, nextLocal);
+            codeBuilder.dup2().dstore(nextLocal);
+            nextLocal += 2;
+        }
+    }
+
+    private void emitDoubleNode(CodeBuilder codeBuilder, MathComponent component) {
+        switch (component) {
+            case Value value -> codeBuilder.loadConstant(DoubleCompiler.toDouble(value));
+            case Variable variable -> codeBuilder
+                    .aload(1)
+                    .loadConstant(variable.index())
+                    .daload();
+            case AnyOperation operation -> {
+                emitDouble(codeBuilder, operation.compA());
+
+                if (operation.operator() == Operator.POWER && operation.compB() instanceof Value exponent && DoubleCompiler.toDouble(exponent) == 2) {
+                    codeBuilder.dup2().dmul();
+                    return;
+                }
+
+                emitDouble(codeBuilder, operation.compB());
+                switch (operation.operator()) {
+                    case ADD -> codeBuilder.dadd();
+                    case SUBTRACT -> codeBuilder.dsub();
+                    case MULTIPLY -> codeBuilder.dmul();
+                    case DIVIDE -> codeBuilder.ddiv();
+                    case POWER -> codeBuilder.invokestatic(CD_MATH, "pow", MTD_DOUBLE_BINARY);
+                }
+            }
+            case FunctionCall call -> emitDoubleCall(codeBuilder, call);
+            case MathComponent.Unparsed unparsed -> throw new UnsupportedOperationException("Unparsed component: " + unparsed.comp());
+        }
+    }
+
+    private void emitDoubleCall(CodeBuilder codeBuilder, FunctionCall call) {
+        var args = call.args();
+
+        switch (call.function()) {
+            case FunctionComponent.FunctionComponent0 fc0 when fc0.doubleFunction() != null -> {
+                loadClassData(codeBuilder, fc0.doubleFunction(), desc(DoubleSupplier.class));
+                codeBuilder.invokeinterface(desc(DoubleSupplier.class), "getAsDouble", MethodTypeDesc.of(CD_double));
+                return;
+            }
+            case FunctionComponent.FunctionComponent1 fc1 when fc1.doubleFunction() != null -> {
+                loadClassData(codeBuilder, fc1.doubleFunction(), desc(DoubleUnaryOperator.class));
+                emitDouble(codeBuilder, args.get(0));
+                codeBuilder.invokeinterface(desc(DoubleUnaryOperator.class), "applyAsDouble", MethodTypeDesc.of(CD_double, CD_double));
+                return;
+            }
+            case FunctionComponent.FunctionComponent2 fc2 when fc2.doubleFunction() != null -> {
+                loadClassData(codeBuilder, fc2.doubleFunction(), desc(DoubleBinaryOperator.class));
+                emitDouble(codeBuilder, args.get(0));
+                emitDouble(codeBuilder, args.get(1));
+                codeBuilder.invokeinterface(desc(DoubleBinaryOperator.class), "applyAsDouble", MTD_DOUBLE_BINARY);
+                return;
+            }
+            default -> {
+            }
+        }
+
+        loadClassData(codeBuilder, call.function(), CD_FUNCTION_COMPONENT);
+        codeBuilder
+                .loadConstant(args.size())
+                .newarray(TypeKind.DOUBLE);
+        for (int i = 0; i < args.size(); i++) {
+            codeBuilder
+                    .dup()
+                    .loadConstant(i);
+            emitDouble(codeBuilder, args.get(i));
+            codeBuilder.dastore();
+        }
+        codeBuilder.invokestatic(CD_DOUBLE_COMPILER, "apply", MethodTypeDesc.of(CD_double, CD_FUNCTION_COMPONENT, CD_double.arrayType()));
+    }
+
+    private void emitExact(CodeBuilder codeBuilder, MathComponent component) {
+        var local = locals.get(component);
+        if (local != null) {
+            codeBuilder.aload(local);
+            return;
+        }
+
+        emitExactNode(codeBuilder, component);
+        if (shared(component)) {
+            locals.put(component, nextLocal);
+            codeBuilder.dup().astore(nextLocal);
+            nextLocal += 1;
+        }
+    }
+
+    private void emitExactNode(CodeBuilder codeBuilder, MathComponent component) {
+        switch (component) {
+            case Value value -> loadClassData(codeBuilder, value, CD_VALUE);
+            case Variable variable -> codeBuilder
+                    .aload(1)
+                    .loadConstant(variable.index())
+                    .aaload();
+            case AnyOperation operation -> {
+                emitExact(codeBuilder, operation.compA());
+                emitExact(codeBuilder, operation.compB());
+
+                switch (operation.operator()) {
+                    case ADD -> codeBuilder.invokestatic(CD_MATH_UTILS, "add", MTD_OPERATION);
+                    case SUBTRACT -> codeBuilder.invokestatic(CD_MATH_UTILS, "subtract", MTD_OPERATION);
+                    case MULTIPLY -> codeBuilder.invokestatic(CD_MATH_UTILS, "multiply", MTD_OPERATION);
+                    case DIVIDE -> {
+                        loadClassData(codeBuilder, operation.mathContext(), CD_MATH_CONTEXT);
+                        codeBuilder.invokestatic(CD_MATH_UTILS, "divide", MTD_INEXACT_OPERATION);
+                    }
+                    case POWER -> {
+                        loadClassData(codeBuilder, operation.mathContext(), CD_MATH_CONTEXT);
+                        codeBuilder.invokestatic(CD_MATH_UTILS, "power", MTD_INEXACT_OPERATION);
+                    }
+                }
+            }
+            case FunctionCall call -> {
+                var args = call.args();
+
+                // memoized calls go through the FunctionCall, the rest call the function directly
+                if (call.memo() != null)
+                    loadClassData(codeBuilder, call, CD_FUNCTION_CALL);
+                else
+                    loadClassData(codeBuilder, call.function(), CD_FUNCTION_COMPONENT);
+                codeBuilder
+                        .loadConstant(args.size())
+                        .anewarray(CD_VALUE);
+                for (int i = 0; i < args.size(); i++) {
+                    codeBuilder
+                            .dup()
+                            .loadConstant(i);
+                    emitExact(codeBuilder, args.get(i));
+                    codeBuilder.aastore();
+                }
+                if (call.memo() != null)
+                    codeBuilder.invokevirtual(CD_FUNCTION_CALL, "apply", MethodTypeDesc.of(CD_VALUE, CD_VALUE.arrayType()));
+                else
+                    codeBuilder.invokeinterface(CD_FUNCTION_COMPONENT, "apply", MethodTypeDesc.of(CD_VALUE, CD_VALUE.arrayType()));
+            }
+            case MathComponent.Unparsed unparsed -> throw new UnsupportedOperationException("Unparsed component: " + unparsed.comp());
+        }
+    }
+}
@@ -0,0 +1,8 @@
+package com.mixfa.calculator;
+
+public record CacheStats(long hits, long misses, long evictions, long size) {
+    public double hitRate() {
+        var requests = hits + misses;
+        return requests == 0 ? 0 : (double) hits / requests;
+    }
+}
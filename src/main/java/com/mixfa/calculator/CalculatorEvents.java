@@ -0,0 +1,134 @@
+package com.mixfa.calculator;
+
+import com.mixfa.calculator.MathComponent.AnyOperation;
+import com.mixfa.calculator.MathComponent.FunctionCall;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+
+// JFR events of every phase, shown under "Calculator" in JDK Mission Control. Callers create an event,
+// begin() it and fill the fields only inside shouldCommit(), so with recording off the event is a
+// couple of checks the JIT removes along with the allocation. Stack traces are off, the phase is the context
+final class CalculatorEvents {
+    private CalculatorEvents() {
+    }
+
+    @Name("com.mixfa.calculator.Tokenize")
+    @Label("Tokenize")
+    @Category("Calculator")
+    @StackTrace(false)
+    static final class Tokenize extends Event {
+        @Label("Expression Length")
+        int expressionLength;
+
+        @Label("Tokens")
+        int tokens;
+    }
+
+    @Name("com.mixfa.calculator.Parse")
+    @Label("Parse")
+    @Description("Building the tree from tokens")
+    @Category("Calculator")
+    @StackTrace(false)
+    static final class Parse extends Event {
+        @Label("Expression Length")
+        int expressionLength;
+
+        @Label("Nodes")
+        int nodes;
+
+        @Label("Precision")
+        int precision;
+    }
+
+    @Name("com.mixfa.calculator.Optimize")
+    @Label("Optimize")
+    @Description("Simplification and common subexpression elimination of a parsed tree")
+    @Category("Calculator")
+    @StackTrace(false)
+    static final class Optimize extends Event {
+        @Label("Nodes Before")
+        int nodesBefore;
+
+        @Label("Nodes After")
+        int nodesAfter;
+
+        @Label("Eliminated Nodes")
+        int eliminatedNodes;
+    }
+
+    @Name("com.mixfa.calculator.Evaluate")
+    @Label("Evaluate")
+    @Category("Calculator")
+    @StackTrace(false)
+    static final class Evaluate extends Event {
+        @Label("Nodes")
+        int nodes;
+
+        @Label("Mode")
+        String mode;
+
+        @Label("Result Kind")
+        String resultKind;
+
+        @Label("Precision")
+        int precision;
+    }
+
+    @Name("com.mixfa.calculator.FunctionCall")
+    @Label("Function Call")
+    @Category("Calculator")
+    @StackTrace(false)
+    static final class Call extends Event {
+        @Label("Function")
+        String function;
+
+        @Label("Arguments")
+        int arguments;
+
+        @Label("Result Kind")
+        String resultKind;
+
+        @Label("Memoized")
+        boolean memoized;
+    }
+
+    // compiled bytecode calls functions directly, this tells it to take the traced path instead
+    static boolean callsEnabled() {
+        return new Call().isEnabled();
+    }
+
+    static String kind(MathComponent.Value value) {
+        return value.getClass().getSimpleName();
+    }
+
+    // distinct nodes, a shared node counts once, only called when an event is committed
+    static int nodes(MathComponent root) {
+        var seen = Collections.newSetFromMap(new IdentityHashMap<MathComponent, Boolean>());
+        var pending = new ArrayDeque<MathComponent>();
+        pending.push(root);
+        while (!pending.isEmpty()) {
+            var component = pending.pop();
+            if (!seen.add(component))
+                continue;
+
+            switch (component) {
+                case AnyOperation operation -> {
+                    pending.push(operation.compA());
+                    pending.push(operation.compB());
+                }
+                case FunctionCall call -> call.args().forEach(pending::push);
+                default -> {
+                }
+            }
+        }
+        return seen.size();
+    }
+}
@@ -0,0 +1,136 @@
+package com.mixfa.calculator;
+
+import com.mixfa.calculator.MathComponent.AnyOperation;
+import com.mixfa.calculator.MathComponent.FunctionCall;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+// merges structurally equal subtrees into one shared node (hash consing), the evaluators keep the value
+// of a shared node and reuse it, so (a*b+c) written 20 times is computed once per evaluation.
+// Subtrees that may call an impure function stay separate, every call of rand() must happen
+public final class CommonSubexpressions {
+    // removedNodes counts operations and function calls that now point to an equal node elsewhere
+    public record Result(MathComponent root, int removedNodes) {
+    }
+
+    // marks a node whose children were already merged
+    private record Rebuild(MathComponent node) {
+    }
+
+    private CommonSubexpressions() {
+    }
+
+    public static Result eliminate(MathComponent root) {
+        var canonical = new HashMap<MathComponent, MathComponent>();
+        var removed = 0;
+
+        var pending = new ArrayDeque<Object>();
+        var results = new ArrayList<MathComponent>();
+        pending.push(root);
+        while (!pending.isEmpty()) {
+            switch (pending.pop()) {
+                case Rebuild(MathComponent node) -> {
+                    var rebuilt = rebuild(node, results);
+                    if (rebuilt.pure()) {
+                        var existing = canonical.putIfAbsent(rebuilt, rebuilt);
+                        if (existing != null) {
+                            rebuilt = existing;
+                            ++removed;
+                        }
+                    }
+                    results.add(rebuilt);
+                }
+                case AnyOperation operation -> {
+                    pending.push(new Rebuild(operation));
+                    pending.push(operation.compB());
+                    pending.push(operation.compA());
+                }
+                case FunctionCall call -> {
+                    pending.push(new Rebuild(call));
+                    for (int i = call.args().size() - 1; i >= 0; i--)
+                        pending.push(call.args().get(i));
+                }
+                case Object leaf -> results.add((MathComponent) leaf);
+            }
+        }
+
+        return new Result(results.getFirst(), removed);
+    }
+
+    // children on top of results are already canonical, the node is copied only when one of them changed
+    private static MathComponent rebuild(MathComponent node, ArrayList<MathComponent> results) {
+        return switch (node) {
+            case AnyOperation operation -> {
+                var compB = results.removeLast();
+                var compA = results.removeLast();
+                yield compA == operation.compA() && compB == operation.compB()
+                        ? operation
+                        : new AnyOperation(compA, compB, operation.operator(), operation.mathContext());
+            }
+            case FunctionCall call -> {
+                var args = results.subList(results.size() - call.args().size(), results.size());
+                var same = true;
+                for (int i = 0; i < args.size(); i++)
+                    same &= args.get(i) == call.args().get(i);
+
+                var rebuilt = same ? call : new FunctionCall(call.function(), args, call.memo());
+                args.clear();
+                yield rebuilt;
+            }
+            default -> node;
+        };
+    }
+
+    // structural equality without recursion, equal hashes are checked before anything is compared
+    static boolean equal(MathComponent a, MathComponent b) {
+        var left = new ArrayDeque<MathComponent>();
+        var right = new ArrayDeque<MathComponent>();
+        left.push(a);
+        right.push(b);
+
+        while (!left.isEmpty()) {
+            var x = left.pop();
+            var y = right.pop();
+            if (x == y)
+                continue;
+            if (x.hashCode() != y.hashCode())
+                return false;
+
+            switch (x) {
+                case AnyOperation operation when y instanceof AnyOperation other -> {
+                    if (operation.operator() != other.operator() || !operation.mathContext().equals(other.mathContext()))
+                        return false;
+                    left.push(operation.compA());
+                    right.push(other.compA());
+                    left.push(operation.compB());
+                    right.push(other.compB());
+                }
+                case FunctionCall call when y instanceof FunctionCall other -> {
+                    if (!call.function().equals(other.function()) || call.args().size() != other.args().size())
+                        return false;
+                    push(left, call.args());
+                    push(right, other.args());
+                }
+                case AnyOperation operation -> {
+                    return false;
+                }
+                case FunctionCall call -> {
+                    return false;
+                }
+                default -> {
+                    if (!x.equals(y))
+                        return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private static void push(ArrayDeque<MathComponent> stack, List<MathComponent> components) {
+        for (MathComponent component : components)
+            stack.push(component);
+    }
+}
@@ -0,0 +1,224 @@
+package com.mixfa.calculator;
+
+import com.mixfa.calculator.MathComponent.Value;
+
+import java.util.List;
+import java.util.function.Supplier;
+
+// immutable, evaluation keeps no state in the tree, so one instance can be shared between threads
+public final class CompiledExpression {
+    private final MathComponent root;
+    private final String[] variableNames;
+    private final EvaluationMode mode;
+    private final DoubleExpression doubleExpression;
+    private final ExactExpression exactExpression;
+    private final Supplier<BatchProgram> batchProgram;
+    private final int eliminatedNodes;
+    private final int precision;
+    // counted by the first committed JFR event, racy but every thread computes the same number
+    private int nodes;
+
+    public record BatchCheck(int rows, int mismatches, double maxError, int firstMismatch) {
+        public boolean matches() {
+            return mismatches == 0;
+        }
+    }
+
+    CompiledExpression(MathComponent root, String[] variableNames, EvaluationMode mode, boolean bytecodeCompilation, ParallelEvaluator parallelEvaluator, int eliminatedNodes, int precision) {
+        this.root = root;
+        this.eliminatedNodes = eliminatedNodes;
+        this.precision = precision;
+        this.variableNames = variableNames;
+        this.mode = mode;
+
+        var program = PostfixProgram.compile(root);
+        if (mode == EvaluationMode.DOUBLE) {
+            var compiled = bytecodeCompilation ? BytecodeCompiler.compileDouble(root) : null;
+            this.doubleExpression = compiled != null ? compiled : DoubleCompiler.compile(root, program);
+            // kept for checkBatch
+            this.exactExpression = program::evaluate;
+        } else {
+            // a tree with subtrees worth forking runs on the pool, everything else stays on the calling thread
+            var parallel = parallelEvaluator != null ? parallelEvaluator.prepare(root) : null;
+            var compiled = parallel == null && bytecodeCompilation ? BytecodeCompiler.compileExact(root, program) : null;
+            this.doubleExpression = null;
+            this.exactExpression = parallel != null ? parallel : compiled != null ? compiled : program::evaluate;
+        }
+        this.batchProgram = StableValue.supplier(() -> BatchProgram.compile(root));
+    }
+
+    public MathComponent root() {
+        return root;
+    }
+
+    public EvaluationMode mode() {
+        return mode;
+    }
+
+    // operations and function calls merged into shared nodes, 0 unless the parser eliminates common subexpressions
+    public int eliminatedNodes() {
+        return eliminatedNodes;
+    }
+
+    public List<String> variableNames() {
+        return List.of(variableNames);
+    }
+
+    public Bindings bindings() {
+        return new Bindings(variableNames);
+    }
+
+    public Value evaluate(Value... values) {
+        return evaluate(Bindings.of(values));
+    }
+
+    public Value evaluate(Bindings bindings) {
+        var event = new CalculatorEvents.Evaluate();
+        event.begin();
+        var result = evaluateBindings(bindings);
+        if (event.shouldCommit()) {
+            event.nodes = nodes();
+            event.mode = mode.name();
+            event.resultKind = CalculatorEvents.kind(result);
+            event.precision = precision;
+            event.commit();
+        }
+        return result;
+    }
+
+    private Value evaluateBindings(Bindings bindings) {
+        checkCount(bindings.size());
+
+        if (mode == EvaluationMode.DOUBLE) {
+            var values = new double[variableNames.length];
+            for (int i = 0; i < values.length; i++)
+                values[i] = DoubleCompiler.toDouble(bindings.get(i, variableNames[i]));
+
+            var result = doubleExpression.evaluate(values);
+            if (!Double.isFinite(result))
+                throw new ArithmeticException("Result is not a finite number: " + result);
+            return ValueFactory.toValue(result);
+        }
+
+        var values = new Value[variableNames.length];
+        for (int i = 0; i < values.length; i++)
+            values[i] = bindings.get(i, variableNames[i]);
+
+        return exactExpression.evaluate(values);
+    }
+
+    // allocation free in DOUBLE mode, EXACT mode converts the arguments and the result
+    public double evaluateDouble(double... values) {
+        var event = new CalculatorEvents.Evaluate();
+        event.begin();
+        var result = evaluateRow(values);
+        if (event.shouldCommit()) {
+            event.nodes = nodes();
+            event.mode = mode.name();
+            event.resultKind = "double";
+            event.precision = precision;
+            event.commit();
+        }
+        return result;
+    }
+
+    private double evaluateRow(double[] values) {
+        checkCount(values.length);
+
+        if (doubleExpression != null)
+            return doubleExpression.evaluate(values);
+
+        var exactValues = new Value[variableNames.length];
+        for (int i = 0; i < exactValues.length; i++)
+            exactValues[i] = ValueFactory.toValue(values[i]);
+
+        return DoubleCompiler.toDouble(exactExpression.evaluate(exactValues));
+    }
+
+    // columns[i] holds the values of the i-th variable, one result per row is written to out.
+    // DOUBLE mode evaluates every operator over whole columns, EXACT mode evaluates row by row
+    public void evaluate(double[][] columns, double[] out) {
+        // one event for the whole batch
+        var event = new CalculatorEvents.Evaluate();
+        event.begin();
+        evaluateBatch(columns, out);
+        if (event.shouldCommit()) {
+            event.nodes = nodes();
+            event.mode = mode.name() + "_BATCH";
+            event.resultKind = "double[" + out.length + "]";
+            event.precision = precision;
+            event.commit();
+        }
+    }
+
+    private void evaluateBatch(double[][] columns, double[] out) {
+        if (mode == EvaluationMode.DOUBLE) {
+            batchProgram.get().evaluate(columns, out, variableNames.length);
+            return;
+        }
+
+        checkColumns(columns, out.length);
+        var row = new double[variableNames.length];
+        for (int i = 0; i < out.length; i++) {
+            for (int variable = 0; variable < row.length; variable++)
+                row[variable] = columns[variable][i];
+            out[i] = evaluateRow(row);
+        }
+    }
+
+    // compares batch results with the exact path, error is relative to max(1, |exact|)
+    public BatchCheck checkBatch(double[][] columns, double[] results, double tolerance) {
+        checkColumns(columns, results.length);
+
+        var mismatches = 0;
+        var maxError = 0.0;
+        var firstMismatch = -1;
+        var values = new Value[variableNames.length];
+        for (int i = 0; i < results.length; i++) {
+            double error;
+            try {
+                // a NaN or infinite input has no exact value either, it is treated like a failed evaluation
+                for (int variable = 0; variable < values.length; variable++)
+                    values[variable] = ValueFactory.toValue(columns[variable][i]);
+                var expected = DoubleCompiler.toDouble(exactExpression.evaluate(values));
+                error = Math.abs(expected - results[i]) / Math.max(1, Math.abs(expected));
+            } catch (ArithmeticException e) {
+                error = Double.isFinite(results[i]) ? Double.POSITIVE_INFINITY : 0;
+            }
+
+            if (!(error <= tolerance)) {
+                ++mismatches;
+                if (firstMismatch == -1)
+                    firstMismatch = i;
+            }
+            maxError = Math.max(maxError, error);
+        }
+
+        return new BatchCheck(results.length, mismatches, maxError, firstMismatch);
+    }
+
+    private int nodes() {
+        var nodes = this.nodes;
+        if (nodes == 0)
+            this.nodes = nodes = CalculatorEvents.nodes(root);
+        return nodes;
+    }
+
+    // the same checks as BatchProgram.evaluate, so a short column fails the same way in both modes
+    private void checkColumns(double[][] columns, int rows) {
+        checkCount(columns.length);
+        for (int i = 0; i < variableNames.length; i++)
+            if (columns[i].length < rows)
+                throw new IllegalArgumentException("Column " + i + " has " + columns[i].length + " rows, expected " + rows);
+    }
+
+    private void checkCount(int count) {
+        if (count < variableNames.length)
+            throw new IllegalArgumentException("Expected " + variableNames.length + " bindings, got " + count);
+    }
+
+    @Override
+    public String toString() {
+        return root.toString();
+    }
+}
@@ -0,0 +1,168 @@
+package com.mixfa.calculator;
+
+import com.mixfa.calculator.MathComponent.AnyOperation;
+import com.mixfa.calculator.MathComponent.FunctionCall;
+import com.mixfa.calculator.MathComponent.Value;
+import com.mixfa.calculator.MathComponent.Value.BigDecimalValue;
+import com.mixfa.calculator.MathComponent.Value.BigIntValue;
+import com.mixfa.calculator.MathComponent.Value.LongValue;
+import com.mixfa.calculator.MathComponent.Value.RatioValue;
+import com.mixfa.calculator.MathComponent.Variable;
+import com.mixfa.calculator.functions.GreatestCommonDivisorFunction;
+import com.mixfa.calculator.functions.LowestCommonMultipleFunction;
+
+import java.math.MathContext;
+import java.util.ArrayDeque;
+import java.util.IdentityHashMap;
+import java.util.List;
+
+// rough cost of evaluating each subtree, in multiplications of two 64 bit words, estimated before anything
+// is evaluated from the operators, the bit length of constant operands (a variable counts as one word),
+// the kind of function and the precision. Results are expected sizes too, so 3^100000 is known to be large
+// and multiplying it is expensive. Only relative sizes matter, they decide what is worth a separate task
+class CostModel {
+    // bits of a result rounded to the context precision, about log2(10) per digit
+    private static final double BITS_PER_DIGIT = 3.33;
+
+    private final double precisionBits;
+    private final double precisionDigits;
+    private final List<FunctionComponent> defaultFunctions;
+    private final IdentityHashMap<MathComponent, Double> costs = new IdentityHashMap<>();
+    private final IdentityHashMap<MathComponent, Double> bits = new IdentityHashMap<>();
+
+    private record Exit(MathComponent node) {
+    }
+
+    CostModel(MathContext mathContext) {
+        // unlimited precision only applies to exact operations, the functions still need some precision
+        this.precisionDigits = mathContext.getPrecision() == 0 ? MathUtils.DEFAULT_MATH_CONTEXT.getPrecision() : mathContext.getPrecision();
+        this.precisionBits = precisionDigits * BITS_PER_DIGIT;
+        this.defaultFunctions = MathParserBuilder.defaultFunctions(mathContext);
+    }
+
+    // children before parents, without recursion
+    void measure(MathComponent root) {
+        var pending = new ArrayDeque<Object>();
+        pending.push(root);
+        while (!pending.isEmpty()) {
+            switch (pending.pop()) {
+                case Exit(AnyOperation operation) -> measure(operation);
+                case Exit(FunctionCall call) -> measure(call);
+                case AnyOperation operation when !costs.containsKey(operation) -> {
+                    pending.push(new Exit(operation));
+                    pending.push(operation.compB());
+                    pending.push(operation.compA());
+                }
+                case FunctionCall call when !costs.containsKey(call) -> {
+                    pending.push(new Exit(call));
+                    call.args().forEach(pending::push);
+                }
+                default -> {
+                }
+            }
+        }
+    }
+
+    // true for the built-in functions, whose cost is known, false for user functions
+    boolean estimated(FunctionComponent function) {
+        return function == GreatestCommonDivisorFunction.greatestCommonDivisor()
+                || function == LowestCommonMultipleFunction.lowestCommonMultiple()
+                || defaultFunctions.contains(function);
+    }
+
+    double cost(MathComponent component) {
+        return costs.getOrDefault(component, 1.0);
+    }
+
+    private double bits(MathComponent component) {
+        var measured = bits.get(component);
+        if (measured != null)
+            return measured;
+
+        return switch (component) {
+            case LongValue(long value) -> Long.SIZE - Long.numberOfLeadingZeros(Math.abs(value));
+            case BigIntValue(var value) -> value.bitLength();
+            case BigDecimalValue(var value) -> value.unscaledValue().bitLength();
+            case RatioValue(Value numerator, Value denominator) -> bits(numerator) + bits(denominator);
+            case Variable variable -> Long.SIZE;
+            default -> precisionBits;
+        };
+    }
+
+    private static double words(double bits) {
+        return bits / Long.SIZE + 1;
+    }
+
+    // series of about one term per digit, each term a full precision multiplication
+    private double transcendental() {
+        var words = words(precisionBits);
+        return words * words * precisionDigits;
+    }
+
+    private void measure(AnyOperation operation) {
+        var a = bits(operation.compA());
+        var b = bits(operation.compB());
+        var children = cost(operation.compA()) + cost(operation.compB());
+
+        double cost;
+        double result;
+        switch (operation.operator()) {
+            case ADD, SUBTRACT -> {
+                cost = words(a) + words(b);
+                result = Math.max(a, b) + 1;
+            }
+            case MULTIPLY -> {
+                cost = words(a) * words(b);
+                result = a + b;
+            }
+            case DIVIDE -> {
+                var words = words(Math.max(Math.max(a, b), precisionBits));
+                cost = words * words;
+                result = Math.max(Math.max(a, b), precisionBits);
+            }
+            case POWER -> {
+                if (operation.compB() instanceof LongValue(long exponent) && exponent >= 0) {
+                    // square and multiply, the last squarings dominate
+                    result = a * exponent;
+                    var words = words(result);
+                    cost = words * words * (64 - Long.numberOfLeadingZeros(exponent) + 1);
+                } else {
+                    result = precisionBits;
+                    cost = transcendental();
+                }
+            }
+            default -> throw new IllegalStateException("Unknown operator " + operation.operator());
+        }
+
+        costs.put(operation, children + cost);
+        bits.put(operation, result);
+    }
+
+    private void measure(FunctionCall call) {
+        var children = 0.0;
+        var widest = 0.0;
+        for (MathComponent arg : call.args()) {
+            children += cost(arg);
+            widest = Math.max(widest, bits(arg));
+        }
+
+        var function = call.function();
+        if (function == GreatestCommonDivisorFunction.greatestCommonDivisor() || function == LowestCommonMultipleFunction.lowestCommonMultiple()) {
+            // Euclid takes a step per bit at worst, each a division of shrinking numbers
+            var words = words(widest);
+            costs.put(call, children + words * words);
+            bits.put(call, widest * 2);
+            return;
+        }
+
+        if (defaultFunctions.contains(function)) {
+            costs.put(call, children + transcendental());
+            bits.put(call, precisionBits);
+            return;
+        }
+
+        // nothing is known about user functions, they are charged like one pass over their widest argument
+        costs.put(call, children + words(widest));
+        bits.put(call, Math.max(widest, Long.SIZE));
+    }
+}
@@ -0,0 +1,119 @@
+package com.mixfa.calculator;
+
+import com.mixfa.calculator.MathComponent.AnyOperation;
+import com.mixfa.calculator.MathComponent.FunctionCall;
+import com.mixfa.calculator.MathComponent.Value;
+import com.mixfa.calculator.MathComponent.Variable;
+
+// turns a parsed tree into nested primitive closures, evaluation allocates nothing
+// unless a function has no double implementation and has to go through Value
+class DoubleCompiler {
+    // closures call each other once per level, deeper trees run on the postfix program instead,
+    // and so do trees with shared nodes, which closures would evaluate once per use
+    private static final int MAX_CLOSURE_DEPTH = 256;
+
+    private DoubleCompiler() {
+    }
+
+    public static DoubleExpression compile(MathComponent root) {
+        return compile(root, PostfixProgram.compile(root));
+    }
+
+    static DoubleExpression compile(MathComponent root, PostfixProgram program) {
+        if (program.height() > MAX_CLOSURE_DEPTH || program.slots() > 0)
+            return program::evaluateDouble;
+
+        return closure(root);
+    }
+
+    private static DoubleExpression closure(MathComponent component) {
+        return switch (component) {
+            case Value value -> {
+                var constant = toDouble(value);
+                yield variables -> constant;
+            }
+            case Variable variable -> {
+                var index = variable.index();
+                yield variables -> variables[index];
+            }
+            case AnyOperation operation -> compileOperation(operation);
+            case FunctionCall call -> compileCall(call);
+            case MathComponent.Unparsed unparsed -> throw new UnsupportedOperationException("Unparsed component: " + unparsed.comp());
+        };
+    }
+
+    public static double toDouble(Value value) {
+        if (value instanceof Value.LongValue(long longValue))
+            return longValue;
+
+        return value.asBigDecimal().doubleValue();
+    }
+
+    private static DoubleExpression compileOperation(AnyOperation operation) {
+        var a = closure(operation.compA());
+
+        if (operation.operator() == Operator.POWER && operation.compB() instanceof Value exponent) {
+            var constant = toDouble(exponent);
+            if (constant == 2)
+                return variables -> {
+                    var base = a.evaluate(variables);
+                    return base * base;
+                };
+            return variables -> Math.pow(a.evaluate(variables), constant);
+        }
+
+        var b = closure(operation.compB());
+        return switch (operation.operator()) {
+            case ADD -> variables -> a.evaluate(variables) + b.evaluate(variables);
+            case SUBTRACT -> variables -> a.evaluate(variables) - b.evaluate(variables);
+            case MULTIPLY -> variables -> a.evaluate(variables) * b.evaluate(variables);
+            case DIVIDE -> variables -> a.evaluate(variables) / b.evaluate(variables);
+            case POWER -> variables -> Math.pow(a.evaluate(variables), b.evaluate(variables));
+        };
+    }
+
+    private static DoubleExpression compileCall(FunctionCall call) {
+        var args = call.args().stream().map(DoubleCompiler::closure).toArray(DoubleExpression[]::new);
+
+        switch (call.function()) {
+            case FunctionComponent.FunctionComponent0 fc0 when fc0.doubleFunction() != null -> {
+                var function = fc0.doubleFunction();
+                return variables -> function.getAsDouble();
+            }
+            case FunctionComponent.FunctionComponent1 fc1 when fc1.doubleFunction() != null -> {
+                var function = fc1.doubleFunction();
+                var arg = args[0];
+                return variables -> function.applyAsDouble(arg.evaluate(variables));
+            }
+            case FunctionComponent.FunctionComponent2 fc2 when fc2.doubleFunction() != null -> {
+                var function = fc2.doubleFunction();
+                var arg1 = args[0];
+                var arg2 = args[1];
+                return variables -> function.applyAsDouble(arg1.evaluate(variables), arg2.evaluate(variables));
+            }
+            default -> {
+            }
+        }
+
+        var function = call.function();
+        return variables -> {
+            var values = new double[args.length];
+            for (int i = 0; i < args.length; i++)
+                values[i] = args[i].evaluate(variables);
+
+            return apply(function, values);
+        };
+    }
+
+    // functions without a double implementation go through Value
+    static double apply(FunctionComponent function, double[] args) {
+        var values = new Value[args.length];
+        for (int i = 0; i < args.length; i++) {
+            if (!Double.isFinite(args[i]))
+                return Double.NaN;
+            values[i] = ValueFactory.toValue(args[i]);
+        }
+
+        return toDouble(function.apply(values));
+    }
+}
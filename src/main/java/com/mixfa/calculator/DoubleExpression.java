@@ -0,0 +1,6 @@
+package com.mixfa.calculator;
+
+@FunctionalInterface
+interface DoubleExpression {
+    double evaluate(double[] variables);
+}
@@ -0,0 +1,13 @@
+package com.mixfa.calculator;
+
+// what happens to results without a finite value, 1/0, ln(0), 10^400 in doubles:
+// EXACT throws ArithmeticException from every entry point, evaluateDouble and batches included.
+// DOUBLE follows IEEE 754 where the result is a double, evaluateDouble and the batch evaluate return
+// Infinity or NaN, evaluate(...) returns a Value, which is always finite, so it throws ArithmeticException.
+// The same goes for inputs: EXACT rejects NaN and infinite arguments, DOUBLE passes them through
+public enum EvaluationMode {
+    // arbitrary precision through MathUtils
+    EXACT,
+    // IEEE 754 double arithmetic, no allocation per evaluation
+    DOUBLE
+}
@@ -0,0 +1,24 @@
+package com.mixfa.calculator;
+
+import com.mixfa.calculator.MathComponent.Value;
+
+// outcome of one item of a batch, a failed item does not fail the others
+public sealed interface EvaluationResult {
+    record Success(Value value) implements EvaluationResult {
+    }
+
+    // MathParsingException for invalid input, ArithmeticException and the like for failed evaluation
+    record Failure(Exception error) implements EvaluationResult {
+    }
+
+    default boolean succeeded() {
+        return this instanceof Success;
+    }
+
+    default Value value() {
+        return switch (this) {
+            case Success(Value value) -> value;
+            case Failure(Exception error) -> throw new IllegalStateException("Evaluation failed: " + error.getMessage(), error);
+        };
+    }
+}
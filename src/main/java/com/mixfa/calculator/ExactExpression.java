@@ -0,0 +1,6 @@
+package com.mixfa.calculator;
+
+@FunctionalInterface
+interface ExactExpression {
+    MathComponent.Value evaluate(MathComponent.Value[] variables);
+}
@@ -0,0 +1,167 @@
+package com.mixfa.calculator;
+
+import com.mixfa.calculator.exception.MathParsingException;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+
+// operator precedence parser with explicit stacks, builds the whole tree in one pass over the tokens
+// and does not recurse, so bracket depth is not limited by the call stack
+class ExpressionParser {
+    private static final Object BRACKET = new Object();
+    private static final Object NEGATE = new Object();
+    // between multiplication and power: -2^2 = -(2^2), -2*3 = (-2)*3
+    private static final int NEGATE_PRECEDENCE = 3;
+
+    private record Call(FunctionComponent function, int argsStart) {
+    }
+
+    private final Tokens tokens;
+    private final MathParser parser;
+    private final ArrayList<MathComponent> operands = new ArrayList<>();
+    private final ArrayDeque<Object> operators = new ArrayDeque<>();
+
+    private ExpressionParser(Tokens tokens, MathParser parser) {
+        this.tokens = tokens;
+        this.parser = parser;
+    }
+
+    public static MathComponent parse(Tokens tokens, MathParser parser) throws MathParsingException {
+        return new ExpressionParser(tokens, parser).parse();
+    }
+
+    private static int precedence(Object operator) {
+        if (operator instanceof Operator op)
+            return op.precedence();
+        if (operator == NEGATE)
+            return NEGATE_PRECEDENCE;
+
+        return -1;
+    }
+
+    private MathParsingException unexpected(int index) {
+        if (index >= tokens.size())
+            return new MathParsingException("Unexpected end of input");
+
+        return new MathParsingException("Unexpected token '" + tokens.text(index) + "' at " + tokens.start(index));
+    }
+
+    private MathComponent pop() {
+        return operands.removeLast();
+    }
+
+    private void reduce() {
+        var operator = operators.pop();
+        if (operator == NEGATE) {
+            operands.add(negate(pop()));
+            return;
+        }
+
+        var compB = pop();
+        var compA = pop();
+        operands.add(new MathComponent.AnyOperation(compA, compB, (Operator) operator, parser.mathContext()));
+    }
+
+    private MathComponent negate(MathComponent component) {
+        if (component instanceof MathComponent.Value value)
+            return value.negate();
+
+        return new MathComponent.AnyOperation(ValueFactory.zero(), component, Operator.SUBTRACT, parser.mathContext());
+    }
+
+    // reduces everything up to the innermost bracket or function call and returns it without popping
+    private Object reduceToBracket(int index) throws MathParsingException {
+        while (!operators.isEmpty()) {
+            var top = operators.peek();
+            if (top == BRACKET || top instanceof Call)
+                return top;
+            reduce();
+        }
+
+        throw unexpected(index);
+    }
+
+    private void finishCall(Call call) throws MathParsingException {
+        var args = operands.subList(call.argsStart(), operands.size());
+        var functionCall = parser.callFunction(call.function(), args);
+        args.clear();
+
+        operands.add(functionCall);
+    }
+
+    private MathComponent parse() throws MathParsingException {
+        var expectOperand = true;
+
+        for (int i = 0; i < tokens.size(); i++) {
+            var type = tokens.type(i);
+
+            if (expectOperand) {
+                switch (type) {
+                    case NUMBER -> {
+                        operands.add(parser.parseNumber(tokens.source(), tokens.start(i), tokens.end(i)));
+                        expectOperand = false;
+                    }
+                    case IDENTIFIER -> {
+                        if (i + 1 < tokens.size() && tokens.type(i + 1) == Tokens.Type.LEFT_BRACKET) {
+                            var call = new Call(parser.resolveFunction(tokens.source(), tokens.start(i), tokens.end(i)), operands.size());
+                            ++i;
+                            if (i + 1 < tokens.size() && tokens.type(i + 1) == Tokens.Type.RIGHT_BRACKET) {
+                                ++i;
+                                finishCall(call);
+                                expectOperand = false;
+                            } else
+                                operators.push(call);
+                        } else {
+                            operands.add(parser.resolveSymbol(tokens.source(), tokens.start(i), tokens.end(i)));
+                            expectOperand = false;
+                        }
+                    }
+                    case LEFT_BRACKET -> operators.push(BRACKET);
+                    case MINUS -> operators.push(NEGATE);
+                    case PLUS -> {
+                    }
+                    default -> throw unexpected(i);
+                }
+                continue;
+            }
+
+            switch (type) {
+                case PLUS, MINUS, STAR, SLASH, CARET -> {
+                    var operator = Operator.of(type);
+                    while (!operators.isEmpty()) {
+                        var topPrecedence = precedence(operators.peek());
+                        if (topPrecedence > operator.precedence() || (topPrecedence == operator.precedence() && operator.leftAssociative()))
+                            reduce();
+                        else
+                            break;
+                    }
+                    operators.push(operator);
+                    expectOperand = true;
+                }
+                case RIGHT_BRACKET -> {
+                    var top = reduceToBracket(i);
+                    operators.pop();
+                    if (top instanceof Call call)
+                        finishCall(call);
+                }
+                case COMMA -> {
+                    if (!(reduceToBracket(i) instanceof Call))
+                        throw unexpected(i);
+                    expectOperand = true;
+                }
+                default -> throw unexpected(i);
+            }
+        }
+
+        if (expectOperand)
+            throw unexpected(tokens.size());
+
+        while (!operators.isEmpty()) {
+            if (precedence(operators.peek()) == -1)
+                throw new MathParsingException("Cannot find closing bracket");
+            reduce();
+        }
+
+        return operands.getFirst();
+    }
+}
@@ -3,6 +3,9 @@ package com.mixfa.calculator;
 import org.apache.commons.lang3.function.TriFunction;
 
 import java.util.function.BiFunction;
+import java.util.function.DoubleBinaryOperator;
+import java.util.function.DoubleSupplier;
+import java.util.function.DoubleUnaryOperator;
 import java.util.function.Function;
 import java.util.function.Supplier;
 
@@ -11,10 +14,35 @@ public sealed interface FunctionComponent {
 
     int argsCount();
 
+    // pure functions depend only on their arguments, so their results may be memoized.
+    // Functions are impure unless created with pure = true
+    boolean pure();
+
+    default MathComponent.Value apply(MathComponent.Value... args) {
+        return switch (this) {
+            case FunctionComponent0 fc0 -> fc0.function().get();
+            case FunctionComponent1 fc1 -> fc1.function().apply(args[0]);
+            case FunctionComponent2 fc2 -> fc2.function().apply(args[0], args[1]);
+            case FunctionComponent3 fc3 -> fc3.function().apply(args[0], args[1], args[2]);
+            case FunctionComponentMulti fcMulti -> fcMulti.function().apply(args);
+        };
+    }
+
+    // doubleFunction is the optional IEEE double equivalent used by EvaluationMode.DOUBLE
     record FunctionComponent0(
             String prefix,
-            Supplier<MathComponent.Value> function
+            Supplier<MathComponent.Value> function,
+            DoubleSupplier doubleFunction,
+            boolean pure
     ) implements FunctionComponent {
+        public FunctionComponent0(String prefix, Supplier<MathComponent.Value> function, DoubleSupplier doubleFunction) {
+            this(prefix, function, doubleFunction, false);
+        }
+
+        public FunctionComponent0(String prefix, Supplier<MathComponent.Value> function) {
+            this(prefix, function, null);
+        }
+
         @Override
         public int argsCount() {
             return 0;
@@ -23,8 +51,18 @@ public sealed interface FunctionComponent {
 
     record FunctionComponent1(
             String prefix,
-            Function<MathComponent.Value, MathComponent.Value> function
+            Function<MathComponent.Value, MathComponent.Value> function,
+            DoubleUnaryOperator doubleFunction,
+            boolean pure
     ) implements FunctionComponent {
+        public FunctionComponent1(String prefix, Function<MathComponent.Value, MathComponent.Value> function, DoubleUnaryOperator doubleFunction) {
+            this(prefix, function, doubleFunction, false);
+        }
+
+        public FunctionComponent1(String prefix, Function<MathComponent.Value, MathComponent.Value> function) {
+            this(prefix, function, null);
+        }
+
         @Override
         public int argsCount() {
             return 1;
@@ -33,8 +71,18 @@ public sealed interface FunctionComponent {
 
     record FunctionComponent2(
             String prefix,
-            BiFunction<MathComponent.Value, MathComponent.Value, MathComponent.Value> function
+            BiFunction<MathComponent.Value, MathComponent.Value, MathComponent.Value> function,
+            DoubleBinaryOperator doubleFunction,
+            boolean pure
     ) implements FunctionComponent {
+        public FunctionComponent2(String prefix, BiFunction<MathComponent.Value, MathComponent.Value, MathComponent.Value> function, DoubleBinaryOperator doubleFunction) {
+            this(prefix, function, doubleFunction, false);
+        }
+
+        public FunctionComponent2(String prefix, BiFunction<MathComponent.Value, MathComponent.Value, MathComponent.Value> function) {
+            this(prefix, function, null);
+        }
+
         @Override
         public int argsCount() {
             return 2;
@@ -43,8 +91,13 @@ public sealed interface FunctionComponent {
 
     record FunctionComponent3(
             String prefix,
-            TriFunction<MathComponent.Value, MathComponent.Value, MathComponent.Value, MathComponent.Value> function
+            TriFunction<MathComponent.Value, MathComponent.Value, MathComponent.Value, MathComponent.Value> function,
+            boolean pure
     ) implements FunctionComponent {
+        public FunctionComponent3(String prefix, TriFunction<MathComponent.Value, MathComponent.Value, MathComponent.Value, MathComponent.Value> function) {
+            this(prefix, function, false);
+        }
+
         @Override
         public int argsCount() {
             return 3;
@@ -53,8 +106,13 @@ public sealed interface FunctionComponent {
 
     record FunctionComponentMulti(
             String prefix,
-            Function<MathComponent.Value[], MathComponent.Value> function
+            Function<MathComponent.Value[], MathComponent.Value> function,
+            boolean pure
     ) implements FunctionComponent {
+        public FunctionComponentMulti(String prefix, Function<MathComponent.Value[], MathComponent.Value> function) {
+            this(prefix, function, false);
+        }
+
         @Override
         public int argsCount() {
             return -1;
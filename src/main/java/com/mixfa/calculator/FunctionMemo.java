@@ -0,0 +1,87 @@
+package com.mixfa.calculator;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+// bounded memo table for pure function calls, keyed by the function and its argument values.
+// One table can be shared by any number of parsers and threads
+public final class FunctionMemo {
+    // by instance, not by name: sin of a 34 digit parser must not answer for sin of a 500 digit one.
+    // MathParserBuilder reuses the default instances per math context, so rebuilt parsers still share entries
+    private record Key(FunctionComponent function, MathComponent.Value[] args) {
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof Key key && function.equals(key.function) && Arrays.equals(args, key.args);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * function.hashCode() + Arrays.hashCode(args);
+        }
+    }
+
+    public record Stats(long hits, long misses) {
+        public double hitRate() {
+            var requests = hits + misses;
+            return requests == 0 ? 0 : (double) hits / requests;
+        }
+    }
+
+    // counters outlive the function instances, so they are kept per name and arity
+    private record Name(String prefix, int argsCount) {
+    }
+
+    private static final class Counters {
+        private final LongAdder hits = new LongAdder();
+        private final LongAdder misses = new LongAdder();
+    }
+
+    private final BoundedCache<Key, MathComponent.Value> cache;
+    private final Map<Name, Counters> counters = new ConcurrentHashMap<>();
+
+    public FunctionMemo(int maxEntries) {
+        this.cache = new BoundedCache<>(maxEntries);
+    }
+
+    // impure functions are always called
+    public MathComponent.Value apply(FunctionComponent function, MathComponent.Value[] args) {
+        if (!function.pure())
+            return function.apply(args);
+
+        var key = new Key(function, args.clone());
+        var functionCounters = counters.computeIfAbsent(new Name(function.prefix(), function.argsCount()), name -> new Counters());
+
+        var value = cache.get(key);
+        if (value != null) {
+            functionCounters.hits.increment();
+            return value;
+        }
+
+        functionCounters.misses.increment();
+        value = function.apply(args);
+        cache.put(key, value);
+        return value;
+    }
+
+    public CacheStats stats() {
+        return cache.stats();
+    }
+
+    // by function name, functions sharing a name are counted together
+    public Map<String, Stats> functionStats() {
+        var stats = new TreeMap<String, Stats>();
+        counters.forEach((name, functionCounters) -> stats.merge(
+                name.prefix(),
+                new Stats(functionCounters.hits.sum(), functionCounters.misses.sum()),
+                (a, b) -> new Stats(a.hits() + b.hits(), a.misses() + b.misses())
+        ));
+        return stats;
+    }
+
+    public void clear() {
+        cache.clear();
+    }
+}
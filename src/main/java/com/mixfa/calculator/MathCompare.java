@@ -1,42 +1,76 @@
 package com.mixfa.calculator;
 
-import java.math.BigDecimal;
+import com.mixfa.calculator.MathComponent.Value;
+import com.mixfa.calculator.MathComponent.Value.BigDecimalValue;
+import com.mixfa.calculator.MathComponent.Value.LongValue;
+import com.mixfa.calculator.MathComponent.Value.RatioValue;
+
 import java.math.BigInteger;
 
+// exact comparison without division: signs first, then bit lengths, full arithmetic only when those tie
 public class MathCompare {
     private MathCompare() {
     }
 
-    public static int compareTo(MathComponent.Value.RatioValue value, MathComponent.Value other) {
-        if (value.signum() != other.signum())
-            return Integer.compare(value.signum(), other.signum());
+    public static int compareTo(Value value, Value other) {
+        var signum = value.signum();
+        if (signum != other.signum())
+            return Integer.compare(signum, other.signum());
+        if (signum == 0)
+            return 0;
+
+        if (value instanceof LongValue(long a) && other instanceof LongValue(long b))
+            return Long.compare(a, b);
+
+        if (value.isInteger() && other.isInteger())
+            return compare(value.asBigInteger(), other.asBigInteger());
+
+        // BigDecimal.compareTo aligns scales of the unscaled values, it does not round
+        if (!(value instanceof RatioValue) && !(other instanceof RatioValue))
+            return value.asBigDecimal().compareTo(other.asBigDecimal());
+
+        // a/b ? c/d with positive denominators is a*d ? c*b
+        if (value instanceof RatioValue(LongValue(long a), LongValue(long b)) && other instanceof RatioValue(LongValue(long c), LongValue(long d)))
+            return compareProducts(a, d, c, b);
+        if (value instanceof RatioValue(LongValue(long a), LongValue(long b)) && other instanceof LongValue(long c))
+            return compareProducts(a, 1, c, b);
+        if (value instanceof LongValue(long a) && other instanceof RatioValue(LongValue(long c), LongValue(long d)))
+            return compareProducts(a, d, c, 1);
+
+        var p = Rational.parts(value);
+        var q = Rational.parts(other);
+        if (signum < 0)
+            return -compareProducts(p[0].negate(), q[1], q[0].negate(), p[1]);
+        return compareProducts(p[0], q[1], q[0], p[1]);
+    }
+
+    private static int compare(BigInteger a, BigInteger b) {
+        // same sign here, positive numbers with more bits are larger
+        if (a.signum() > 0 && a.bitLength() != b.bitLength())
+            return Integer.compare(a.bitLength(), b.bitLength());
 
-        return switch (other) {
-            case MathComponent.Value.BigIntValue(BigInteger v) -> value.asBigDecimal().compareTo(new BigDecimal(v));
-            case MathComponent.Value.BigDecimalValue(BigDecimal v) -> value.asBigDecimal().compareTo(v);
-            case MathComponent.Value.RatioValue ratioValue -> value.asBigDecimal().compareTo(ratioValue.asBigDecimal());
-        };
+        return a.compareTo(b);
     }
 
-    public static int compareTo(BigDecimal value, MathComponent.Value other) {
-        if (value.signum() != other.signum())
-            return Integer.compare(value.signum(), other.signum());
+    // exact 128 bit comparison of a*b and c*d
+    private static int compareProducts(long a, long b, long c, long d) {
+        var high1 = Math.multiplyHigh(a, b);
+        var high2 = Math.multiplyHigh(c, d);
+        if (high1 != high2)
+            return Long.compare(high1, high2);
 
-        return switch (other) {
-            case MathComponent.Value.BigIntValue(BigInteger v) -> value.compareTo(new BigDecimal(v));
-            case MathComponent.Value.BigDecimalValue(BigDecimal v) -> value.compareTo(v);
-            case MathComponent.Value.RatioValue ratioValue -> value.compareTo(ratioValue.asBigDecimal());
-        };
+        return Long.compareUnsigned(a * b, c * d);
     }
 
-    public static int compareTo(BigInteger value, MathComponent.Value other) {
-        if (value.signum() != other.signum())
-            return Integer.compare(value.signum(), other.signum());
+    // a*b ? c*d for non-negative numbers, the bit length of a product is the sum of the factors' or one less
+    private static int compareProducts(BigInteger a, BigInteger b, BigInteger c, BigInteger d) {
+        var bits1 = a.bitLength() + b.bitLength();
+        var bits2 = c.bitLength() + d.bitLength();
+        if (bits1 > bits2 + 1)
+            return 1;
+        if (bits2 > bits1 + 1)
+            return -1;
 
-        return switch (other) {
-            case MathComponent.Value.BigIntValue(BigInteger v) -> value.compareTo(v);
-            case MathComponent.Value.BigDecimalValue(BigDecimal v) -> new BigDecimal(value).compareTo(v);
-            case MathComponent.Value.RatioValue ratioValue -> new BigDecimal(value).compareTo(ratioValue.asBigDecimal());
-        };
+        return a.multiply(b).compareTo(c.multiply(d));
     }
 }
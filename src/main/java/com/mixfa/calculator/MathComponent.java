@@ -1,19 +1,21 @@
 package com.mixfa.calculator;
 
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.experimental.Accessors;
 
 import java.math.BigDecimal;
 import java.math.BigInteger;
 import java.math.MathContext;
-import java.util.function.BiFunction;
-import java.util.function.Supplier;
+import java.util.List;
+import java.util.StringJoiner;
 
 public sealed interface MathComponent {
     Value calculate();
 
-    default int chainLength() {
-        return 1;
+    // false when evaluating the node may call an impure function, such a node is never merged with an equal one
+    default boolean pure() {
+        return true;
     }
 
     default boolean isEmpty() {
@@ -27,22 +29,123 @@ public sealed interface MathComponent {
         }
     }
 
-    static public sealed interface Operation extends MathComponent {
-        MathComponent compA();
+    record Variable(String name, int index) implements MathComponent {
+        @Override
+        public Value calculate() {
+            throw new UnsupportedOperationException("Unbound variable: " + name);
+        }
 
-        MathComponent compB();
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
+
+    @Accessors(fluent = true)
+    @Getter
+    final class FunctionCall implements MathComponent {
+        private final FunctionComponent function;
+        private final List<MathComponent> args;
+        // null when results are not memoized
+        private final FunctionMemo memo;
+        private final boolean pure;
+        @Getter(AccessLevel.NONE)
+        private final int hash;
+        // built by the first calculate(), see AnyOperation
+        @Getter(AccessLevel.NONE)
+        private PostfixProgram program;
+
+        public FunctionCall(FunctionComponent function, List<MathComponent> args, FunctionMemo memo) {
+            this.function = function;
+            this.args = List.copyOf(args);
+            this.memo = function.pure() ? memo : null;
+
+            var pure = function.pure();
+            var hash = function.hashCode();
+            for (MathComponent arg : this.args) {
+                pure &= arg.pure();
+                hash = 31 * hash + arg.hashCode();
+            }
+            this.pure = pure;
+            this.hash = hash;
+        }
+
+        public FunctionCall(FunctionComponent function, List<MathComponent> args) {
+            this(function, args, null);
+        }
+
+        // every evaluator calls the function through here so the memo table is consulted
+        public Value apply(Value[] values) {
+            var event = new CalculatorEvents.Call();
+            event.begin();
+            var result = memo == null ? function.apply(values) : memo.apply(function, values);
+            if (event.shouldCommit()) {
+                event.function = function.prefix();
+                event.arguments = values.length;
+                event.resultKind = CalculatorEvents.kind(result);
+                event.memoized = memo != null;
+                event.commit();
+            }
+            return result;
+        }
 
         @Override
-        default int chainLength() {
-            return compA().chainLength() + compB().chainLength();
+        public Value calculate() {
+            var event = new CalculatorEvents.Evaluate();
+            event.begin();
+            var result = program().evaluate();
+            if (event.shouldCommit()) {
+                event.nodes = CalculatorEvents.nodes(this);
+                event.mode = "EXACT";
+                event.resultKind = CalculatorEvents.kind(result);
+                event.commit();
+            }
+            return result;
+        }
+
+        PostfixProgram program() {
+            var program = this.program;
+            if (program == null)
+                this.program = program = PostfixProgram.compile(this);
+            return program;
+        }
+
+        // structural, the memo table does not take part
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof FunctionCall call && CommonSubexpressions.equal(this, call);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public String toString() {
+            var joiner = new StringJoiner(", ", function.prefix() + "(", ")");
+            for (MathComponent arg : args)
+                joiner.add(arg.toString());
+            return joiner.toString();
         }
     }
 
+    static public sealed interface Operation extends MathComponent {
+        MathComponent compA();
+
+        MathComponent compB();
+    }
+
     static public sealed interface Value extends MathComponent {
         BigInteger asBigInteger();
 
         BigDecimal asBigDecimal();
 
+        // only values that are not exact decimals need the context
+        default BigDecimal asBigDecimal(MathContext mathContext) {
+            return asBigDecimal();
+        }
+
         Value negate();
 
         int signum();
@@ -57,18 +160,92 @@ public sealed interface MathComponent {
             return equalsConstant(OptimizationConstant.ZERO);
         }
 
-        record BigIntValue(BigInteger value) implements Value {
-            private static final BigIntValue ONE = new BigIntValue(BigInteger.ONE);
-            private static final BigIntValue ZERO = new BigIntValue(BigInteger.ZERO);
+        default boolean isInteger() {
+            return false;
+        }
+
+        // integers in the long range are always LongValue, BigIntValue only holds what does not fit
+        record LongValue(long value) implements Value {
+            // small literals like 0, 1, 2 and 10 are shared instead of being created for every token
+            private static final int CACHE_LOW = -128;
+            private static final int CACHE_HIGH = 1024;
+            private static final LongValue[] CACHE = new LongValue[CACHE_HIGH - CACHE_LOW + 1];
+
+            static {
+                for (int i = 0; i < CACHE.length; i++)
+                    CACHE[i] = new LongValue(i + CACHE_LOW);
+            }
+
+            public static LongValue one() {
+                return CACHE[1 - CACHE_LOW];
+            }
 
-            public static BigIntValue one() {
-                return ONE;
+            public static LongValue zero() {
+                return CACHE[-CACHE_LOW];
             }
 
-            public static BigIntValue zero() {
-                return ZERO;
+            public static LongValue valueOf(long value) {
+                if (value >= CACHE_LOW && value <= CACHE_HIGH)
+                    return CACHE[(int) value - CACHE_LOW];
+
+                return new LongValue(value);
             }
 
+            @Override
+            public int signum() {
+                return Long.signum(value);
+            }
+
+            @Override
+            public Value abs() {
+                return value < 0 ? negate() : this;
+            }
+
+            @Override
+            public int compareTo(Value other) {
+                return MathCompare.compareTo(this, other);
+            }
+
+            @Override
+            public Value calculate() {
+                return this;
+            }
+
+            @Override
+            public BigInteger asBigInteger() {
+                return BigInteger.valueOf(value);
+            }
+
+            @Override
+            public BigDecimal asBigDecimal() {
+                return BigDecimal.valueOf(value);
+            }
+
+            @Override
+            public Value negate() {
+                if (value == Long.MIN_VALUE)
+                    return new BigIntValue(BigInteger.valueOf(value).negate());
+
+                return valueOf(-value);
+            }
+
+            @Override
+            public boolean isInteger() {
+                return true;
+            }
+
+            @Override
+            public boolean equalsConstant(OptimizationConstant constant) {
+                return value == constant.longValue();
+            }
+
+            @Override
+            public String toString() {
+                return Long.toString(value);
+            }
+        }
+
+        record BigIntValue(BigInteger value) implements Value {
             @Override
             public int signum() {
                 return value.signum();
@@ -76,12 +253,12 @@ public sealed interface MathComponent {
 
             @Override
             public Value abs() {
-                return new BigIntValue(value.abs());
+                return ValueFactory.toValue(value.abs());
             }
 
             @Override
             public int compareTo(Value other) {
-                return MathCompare.compareTo(value, other);
+                return MathCompare.compareTo(this, other);
             }
 
             @Override
@@ -101,7 +278,12 @@ public sealed interface MathComponent {
 
             @Override
             public Value negate() {
-                return new BigIntValue(value.negate());
+                return ValueFactory.toValue(value.negate());
+            }
+
+            @Override
+            public boolean isInteger() {
+                return true;
             }
 
             @Override
@@ -153,7 +335,7 @@ public sealed interface MathComponent {
 
             @Override
             public int compareTo(Value other) {
-                return MathCompare.compareTo(value, other);
+                return MathCompare.compareTo(this, other);
             }
 
             @Override
@@ -162,34 +344,22 @@ public sealed interface MathComponent {
             }
         }
 
-        // prefers negative numerator
+        // always reduced, numerator and denominator are integers and the denominator is positive
         record RatioValue(Value numerator, Value denominator) implements Value {
             public RatioValue {
-                if ((numerator.signum() == -1 && denominator.signum() == -1) ||
-                        numerator.signum() == 1 && denominator.signum() == -1) {
-                    numerator = numerator.negate();
-                    denominator = denominator.negate();
-                }
-            }
-
-            @Override
-            public int chainLength() {
-                return 2;
+                var parts = Rational.normalize(numerator, denominator);
+                numerator = parts[0];
+                denominator = parts[1];
             }
 
             @Override
             public int signum() {
-                return numerator.signum() * denominator.signum();
+                return numerator.signum();
             }
 
             @Override
             public Value abs() {
-                if (numerator.signum() == -1)
-                    return new RatioValue(numerator.negate(), denominator);
-                else if (denominator.signum() == -1)
-                    return new RatioValue(numerator, denominator.negate());
-
-                return this;
+                return numerator.signum() == -1 ? negate() : this;
             }
 
             @Override
@@ -202,16 +372,19 @@ public sealed interface MathComponent {
                 return asBigDecimal().toBigInteger();
             }
 
+            @Override
             public BigDecimal asBigDecimal() {
-                return numerator.asBigDecimal().divide(denominator.asBigDecimal(), MathContext.DECIMAL128);
+                return asBigDecimal(MathUtils.DEFAULT_MATH_CONTEXT);
+            }
+
+            @Override
+            public BigDecimal asBigDecimal(MathContext mathContext) {
+                return numerator.asBigDecimal().divide(denominator.asBigDecimal(), mathContext);
             }
 
             @Override
             public Value negate() {
-                if (numerator.signum() == -1)
-                    return new RatioValue(numerator.negate(), denominator.negate());
-                else
-                    return new RatioValue(numerator, denominator.negate());
+                return new RatioValue(numerator.negate(), denominator);
             }
 
             @Override
@@ -219,9 +392,7 @@ public sealed interface MathComponent {
                 return switch (constant) {
                     case ZERO -> numerator.isZero();
                     case ONE -> numerator.equals(denominator);
-                    case MINUS_ONE -> numerator.abs().equals(denominator.abs()) && (
-                            (numerator.signum() == -1 && denominator.signum() == 1) || (numerator.signum() == 1 && denominator.signum() == -1)
-                    );
+                    case MINUS_ONE -> numerator.negate().equals(denominator);
                 };
             }
 
@@ -242,47 +413,87 @@ public sealed interface MathComponent {
     final class AnyOperation implements Operation {
         private final MathComponent compA;
         private final MathComponent compB;
-        private final BiFunction<MathComponent, MathComponent, Value> operation;
-        private final Supplier<Value> calculatedValue;
-
-        private final String info;
-
-        public AnyOperation(MathComponent compA, MathComponent compB, BiFunction<MathComponent, MathComponent, Value> operation, String info) {
+        private final Operator operator;
+        private final MathContext mathContext;
+        private final boolean pure;
+        // children are built first, so hashing a node only combines the hashes they already hold
+        @Getter(AccessLevel.NONE)
+        private final int hash;
+        // built by the first calculate(). The program is immutable and all its fields are final,
+        // so a racing thread either sees a complete one or builds an identical one itself
+        @Getter(AccessLevel.NONE)
+        private PostfixProgram program;
+
+        public AnyOperation(MathComponent compA, MathComponent compB, Operator operator, MathContext mathContext) {
             this.compA = compA;
             this.compB = compB;
-            this.operation = operation;
-            this.info = info;
-            this.calculatedValue = StableValue.supplier(() -> operation.apply(compA, compB));
+            this.operator = operator;
+            this.mathContext = mathContext;
+            this.pure = compA.pure() && compB.pure();
+            this.hash = ((operator.ordinal() * 31 + compA.hashCode()) * 31 + compB.hashCode()) * 31 + mathContext.hashCode();
+        }
+
+        public AnyOperation(MathComponent compA, MathComponent compB, Operator operator) {
+            this(compA, compB, operator, MathUtils.DEFAULT_MATH_CONTEXT);
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof AnyOperation operation && CommonSubexpressions.equal(this, operation);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
         }
 
         @Override
         public String toString() {
-            return compA.toString() + "  "+ info + "  " + compB.toString();
+            return compA.toString() + "  " + operator.symbol() + "  " + compB.toString();
         }
 
+        // evaluation state lives on the program's operand stack, never in the tree, so a tree can be
+        // evaluated any number of times and from several threads, at any depth
         @Override
         public Value calculate() {
-            return calculatedValue.get();
+            var event = new CalculatorEvents.Evaluate();
+            event.begin();
+            var result = program().evaluate();
+            if (event.shouldCommit()) {
+                event.nodes = CalculatorEvents.nodes(this);
+                event.mode = "EXACT";
+                event.resultKind = CalculatorEvents.kind(result);
+                event.precision = mathContext.getPrecision();
+                event.commit();
+            }
+            return result;
+        }
+
+        PostfixProgram program() {
+            var program = this.program;
+            if (program == null)
+                this.program = program = PostfixProgram.compile(this);
+            return program;
         }
 
         public static AnyOperation add(MathComponent compA, MathComponent compB) {
-            return new AnyOperation(compA, compB, MathUtils::add, "+");
+            return new AnyOperation(compA, compB, Operator.ADD);
         }
 
         public static AnyOperation subtract(MathComponent compA, MathComponent compB) {
-            return new AnyOperation(compA, compB, MathUtils::subtract, "-");
+            return new AnyOperation(compA, compB, Operator.SUBTRACT);
         }
 
         public static AnyOperation multiply(MathComponent compA, MathComponent compB) {
-            return new AnyOperation(compA, compB, MathUtils::multiply, "*");
+            return new AnyOperation(compA, compB, Operator.MULTIPLY);
         }
 
         public static AnyOperation divide(MathComponent compA, MathComponent compB) {
-            return new AnyOperation(compA, compB, MathUtils::divide, "/");
+            return new AnyOperation(compA, compB, Operator.DIVIDE);
         }
 
         public static AnyOperation power(MathComponent compA, MathComponent compB) {
-            return new AnyOperation(compA, compB, MathUtils::power, "^");
+            return new AnyOperation(compA, compB, Operator.POWER);
         }
     }
 }
@@ -2,101 +2,270 @@ package com.mixfa.calculator;
 
 import com.mixfa.calculator.exception.MathParsingException;
 
-import java.math.BigDecimal;
-import java.math.BigInteger;
-import java.util.Arrays;
-import java.util.Comparator;
+import java.math.MathContext;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.function.Supplier;
-import java.util.regex.Pattern;
-
-import static com.mixfa.calculator.Utils.getArgs;
 
+// immutable once built, one parser (and every tree and CompiledExpression it returns) may be shared by
+// any number of threads. The parse cache and function memo are concurrent, Bindings are not
 public class MathParser {
-    private static final Supplier<Pattern> REAL_NUMBER_PATTERN = StableValue.supplier(() -> Pattern.compile("^[-+]?([0-9]*\\.)?[0-9]+([eE][-+]?[0-9]+)?$"));
-    private static final Supplier<Pattern> INT_NUMBER_PATTERN = StableValue.supplier(() -> Pattern.compile("^-?\\d+$"));
-    private final Pattern realNumberPattern = REAL_NUMBER_PATTERN.get();
-    private final Pattern intNumberPattern = INT_NUMBER_PATTERN.get();
-    private final FunctionComponent[] functionComponents;
-    private final MathConstant[] constants;
+    // tasks per core: small batches get a task per item, thousands of tiny expressions share a task per chunk
+    private static final int TASKS_PER_CORE = 4;
+
+    private final SymbolTable symbols;
+    private final MathContext mathContext;
+    private final FunctionMemo functionMemo;
+    private final boolean bytecodeCompilation;
+    private final boolean commonSubexpressionElimination;
+    private final ParallelEvaluator parallelEvaluator;
+    // trees are immutable and keep no evaluation results, so one cached tree may be shared by every caller
+    private final BoundedCache<String, MathComponent> parseCache;
 
     public MathParser(FunctionComponent[] functionComponents, MathConstant[] constants) {
-        this.functionComponents = Arrays.stream(functionComponents)
-                .sorted(Comparator.comparing(FunctionComponent::prefix))
-                .toArray(FunctionComponent[]::new);
+        this(new MathParserBuilder().addFunctions(functionComponents).addConstants(constants));
+    }
+
+    MathParser(MathParserBuilder builder) {
+        this.symbols = builder.symbolTable();
+        this.mathContext = builder.mathContext;
+        this.functionMemo = builder.functionMemo;
+        this.bytecodeCompilation = builder.bytecodeCompilation;
+        this.commonSubexpressionElimination = builder.commonSubexpressionElimination;
+        this.parallelEvaluator = builder.parallelPool != null
+                ? new ParallelEvaluator(builder.parallelPool, builder.parallelCostThreshold, builder.mathContext)
+                : null;
+        this.parseCache = builder.parseCacheSize > 0 ? new BoundedCache<>(builder.parseCacheSize) : null;
+    }
+
+    private MathParser(MathParser parent, Collection<MathComponent.Variable> variables) {
+        this.symbols = parent.symbols.withVariables(variables);
+        this.mathContext = parent.mathContext;
+        this.functionMemo = parent.functionMemo;
+        this.bytecodeCompilation = parent.bytecodeCompilation;
+        this.commonSubexpressionElimination = parent.commonSubexpressionElimination;
+        this.parallelEvaluator = parent.parallelEvaluator;
+        // the same text means a different tree once variables are in scope
+        this.parseCache = null;
+    }
+
+    MathComponent parseNumber(CharSequence source, int start, int end) {
+        return NumberLiterals.parse(source, start, end);
+    }
+
+    // variables and constants, looked up straight from the token range without building a string
+    MathComponent resolveSymbol(CharSequence source, int start, int end) throws MathParsingException {
+        var symbol = symbols.symbol(source, start, end);
+        if (symbol == null)
+            throw new MathParsingException("Unknown symbol " + source.subSequence(start, end));
+
+        return symbol;
+    }
+
+    FunctionComponent resolveFunction(CharSequence source, int start, int end) throws MathParsingException {
+        var functionComponent = symbols.function(source, start, end);
+        if (functionComponent == null)
+            throw new MathParsingException("Unknown function " + source.subSequence(start, end));
+
+        return functionComponent;
+    }
+
+    MathComponent callFunction(FunctionComponent functionComponent, List<MathComponent> args) throws MathParsingException {
+        if (functionComponent.argsCount() != -1 && functionComponent.argsCount() != args.size())
+            throw new MathParsingException("Args count mismatch " + functionComponent.prefix() + ": expected " + functionComponent.argsCount() + ", got " + args.size());
+
+        return new MathComponent.FunctionCall(functionComponent, args, functionMemo);
+    }
+
+    public MathComponent parseInput(String input) throws MathParsingException {
+        if (input.isBlank()) return ValueFactory.zero();
+        if (parseCache == null)
+            return parse(input, true).root();
 
-        this.constants = Arrays.stream(constants)
-                .sorted(Comparator.comparing(MathConstant::name))
-                .toArray(MathConstant[]::new);
+        var component = parseCache.get(input);
+        if (component == null) {
+            component = parse(input, true).root();
+            parseCache.put(input, component);
+        }
+        return component;
     }
 
-    public MathComponent parseSimpleComponent(String comp) throws MathParsingException {
-        if (comp.equals("0") || comp.equals("0.0")) {
-            return ValueFactory.zero();
+    // identities and constant subtrees are resolved once here instead of on every evaluation
+    private CommonSubexpressions.Result parse(String input, boolean exact) throws MathParsingException {
+        var tokenizeEvent = new CalculatorEvents.Tokenize();
+        tokenizeEvent.begin();
+        var tokens = Tokenizer.tokenize(input);
+        if (tokenizeEvent.shouldCommit()) {
+            tokenizeEvent.expressionLength = input.length();
+            tokenizeEvent.tokens = tokens.size();
+            tokenizeEvent.commit();
         }
 
-        if (intNumberPattern.matcher(comp).find()) {
-            return ValueFactory.toValue(new BigInteger(comp));
+        var parseEvent = new CalculatorEvents.Parse();
+        parseEvent.begin();
+        var parsed = ExpressionParser.parse(tokens, this);
+        if (parseEvent.shouldCommit()) {
+            parseEvent.expressionLength = input.length();
+            parseEvent.nodes = CalculatorEvents.nodes(parsed);
+            parseEvent.precision = mathContext.getPrecision();
+            parseEvent.commit();
         }
 
-        if (realNumberPattern.matcher(comp).find()) {
-            return ValueFactory.toValue(new BigDecimal(comp));
+        var optimizeEvent = new CalculatorEvents.Optimize();
+        optimizeEvent.begin();
+        var root = Simplifier.simplify(parsed, mathContext, exact);
+        var result = commonSubexpressionElimination ? CommonSubexpressions.eliminate(root) : new CommonSubexpressions.Result(root, 0);
+        if (optimizeEvent.shouldCommit()) {
+            optimizeEvent.nodesBefore = CalculatorEvents.nodes(parsed);
+            optimizeEvent.nodesAfter = CalculatorEvents.nodes(result.root());
+            optimizeEvent.eliminatedNodes = result.removedNodes();
+            optimizeEvent.commit();
         }
+        return result;
+    }
 
-        var constant = Utils.findMathConstant(comp, constants);
-        if (constant != null) {
-            return constant.value();
+    // evaluates a tree parsed by this parser, expensive independent subtrees in parallel when enabled
+    public MathComponent.Value evaluate(MathComponent component) {
+        var event = new CalculatorEvents.Evaluate();
+        event.begin();
+        var result = parallelEvaluator == null ? calculate(component) : parallelEvaluator.evaluate(component);
+        if (event.shouldCommit()) {
+            event.nodes = CalculatorEvents.nodes(component);
+            event.mode = parallelEvaluator == null ? "EXACT" : "EXACT_PARALLEL";
+            event.resultKind = CalculatorEvents.kind(result);
+            event.precision = mathContext.getPrecision();
+            event.commit();
         }
+        return result;
+    }
 
-        for (FunctionComponent functionComponent : functionComponents) {
-            if (!Utils.startsWithFunctionName(comp, functionComponent))
-                continue;
-
-            MathComponent.Value[] args;
-            try {
-                args = Arrays.stream(getArgs(comp).split(","))
-                        .map(String::trim)
-                        .filter(arg -> !arg.isBlank())
-                        .map(it -> {
-                            try {
-                                return this.parseInput(it);
-                            } catch (MathParsingException e) {
-                                throw new RuntimeException(e);
-                            }
-                        })
-                        .filter(mc -> !mc.isEmpty())
-                        .map(MathComponent::calculate)
-                        .toArray(MathComponent.Value[]::new);
-            } catch (RuntimeException re) {
-                throw new MathParsingException(re.getMessage());
-            }
+    // the tree's own program, calculate() would commit a second event
+    private static MathComponent.Value calculate(MathComponent component) {
+        return switch (component) {
+            case MathComponent.AnyOperation operation -> operation.program().evaluate();
+            case MathComponent.FunctionCall call -> call.program().evaluate();
+            default -> component.calculate();
+        };
+    }
+
+    // parses and evaluates every input on virtual threads, results keep the order of inputs
+    public List<EvaluationResult> evaluateAll(List<String> inputs) {
+        try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            return evaluateAll(inputs, executor);
+        }
+    }
+
+    // the same on a caller supplied, for example bounded, executor
+    public List<EvaluationResult> evaluateAll(List<String> inputs, ExecutorService executor) {
+        return evaluateAll(inputs.size(), i -> evaluate(parseInput(inputs.get(i))), executor);
+    }
+
+    // evaluates every compiled expression with the same values, on virtual threads
+    public static List<EvaluationResult> evaluateCompiled(List<CompiledExpression> expressions, MathComponent.Value... values) {
+        try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            return evaluateCompiled(expressions, executor, values);
+        }
+    }
+
+    public static List<EvaluationResult> evaluateCompiled(List<CompiledExpression> expressions, ExecutorService executor, MathComponent.Value... values) {
+        var copy = values.clone();
+        return evaluateAll(expressions.size(), i -> expressions.get(i).evaluate(copy), executor);
+    }
 
-            if (functionComponent.argsCount() != args.length && functionComponent.argsCount() == -1)
-                throw new MathParsingException("Args count mismatch " + functionComponent + " comp: " + comp);
+    private interface Item {
+        MathComponent.Value evaluate(int index) throws MathParsingException;
+    }
 
-            return switch (functionComponent) {
-                case FunctionComponent.FunctionComponent0 fc0 -> fc0.function().get();
-                case FunctionComponent.FunctionComponent1 fc1 -> fc1.function().apply(args[0]);
-                case FunctionComponent.FunctionComponent2 fc2 -> fc2.function().apply(args[0], args[1]);
-                case FunctionComponent.FunctionComponent3 fc3 ->
-                        fc3.function().apply(args[0], args[1], args[2]);
-                case FunctionComponent.FunctionComponentMulti fcMulti -> fcMulti.function().apply(args);
-            };
+    private static List<EvaluationResult> evaluateAll(int count, Item item, ExecutorService executor) {
+        var results = new EvaluationResult[count];
+        var cores = Runtime.getRuntime().availableProcessors();
+        var chunk = Math.max(1, Math.ceilDiv(count, cores * TASKS_PER_CORE));
 
+        var tasks = new ArrayList<Callable<Void>>(Math.ceilDiv(count, chunk));
+        for (int start = 0; start < count; start += chunk) {
+            var from = start;
+            var to = Math.min(count, start + chunk);
+            tasks.add(() -> {
+                for (int i = from; i < to; i++)
+                    results[i] = evaluate(item, i);
+                return null;
+            });
         }
 
-        throw new MathParsingException("Not parsed component " + comp);
+        try {
+            for (Future<Void> future : executor.invokeAll(tasks))
+                future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Interrupted while evaluating a batch");
+        } catch (ExecutionException e) {
+            // evaluate catches everything but errors, anything else means the executor failed the task itself
+            switch (e.getCause()) {
+                case Error error -> throw error;
+                case RuntimeException exception -> throw exception;
+                case Throwable cause -> throw new CompletionException(cause);
+            }
+        }
+        return List.of(results);
     }
 
-    public MathComponent parseInput(String input) throws MathParsingException {
-        if (input.isBlank()) return ValueFactory.zero();
+    private static EvaluationResult evaluate(Item item, int index) {
+        try {
+            return new EvaluationResult.Success(item.evaluate(index));
+        } catch (MathParsingException | RuntimeException e) {
+            return new EvaluationResult.Failure(e);
+        }
+    }
+
+    public MathContext mathContext() {
+        return mathContext;
+    }
+
+    // pass to MathParserBuilder.withSymbols to share these functions and constants with other parsers
+    public SymbolTable symbols() {
+        return symbols;
+    }
+
+    public Optional<FunctionMemo> functionMemo() {
+        return Optional.ofNullable(functionMemo);
+    }
+
+    public Optional<CacheStats> parseCacheStats() {
+        return parseCache == null ? Optional.empty() : Optional.of(parseCache.stats());
+    }
+
+    public CompiledExpression compile(String input, String... variableNames) throws MathParsingException {
+        return compile(input, EvaluationMode.EXACT, variableNames);
+    }
+
+    public CompiledExpression compile(String input, EvaluationMode mode, String... variableNames) throws MathParsingException {
+        var scope = new HashMap<String, MathComponent.Variable>(variableNames.length * 2);
+        for (int i = 0; i < variableNames.length; i++) {
+            var name = variableNames[i];
+            if (scope.putIfAbsent(name, new MathComponent.Variable(name, i)) != null)
+                throw new MathParsingException("Duplicate variable " + name);
+        }
+
+        if (input.isBlank())
+            return new CompiledExpression(ValueFactory.zero(), variableNames.clone(), mode, bytecodeCompilation, null, 0, mathContext.getPrecision());
 
-        return ShuntingYardConverter.convertToMathComponent(Tokenizer.tokenize(input), this);
+        var parsed = new MathParser(this, scope.values()).parse(input, mode == EvaluationMode.EXACT);
+        return new CompiledExpression(parsed.root(), variableNames.clone(), mode, bytecodeCompilation, parallelEvaluator, parsed.removedNodes(), mathContext.getPrecision());
     }
 
-    private static final Supplier<MathParser> DEFAULT_PARSER = StableValue.supplier(() -> new MathParser(
-            MathParserBuilder.DEFAULT_FUNCTIONS.toArray(FunctionComponent[]::new),
-            MathParserBuilder.DEFAULT_CONSTANTS.toArray(MathConstant[]::new)
-    ));
+    private static final Supplier<MathParser> DEFAULT_PARSER = StableValue.supplier(() -> new MathParserBuilder()
+            .addDefaults()
+            .build());
 
     public static MathParser defaultParser() {
         return DEFAULT_PARSER.get();
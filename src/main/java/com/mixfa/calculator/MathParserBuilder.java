@@ -8,30 +8,88 @@ import java.math.BigDecimal;
 import java.math.MathContext;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 
 public class MathParserBuilder {
-    private final List<FunctionComponent> functions = new ArrayList<>();
-    private final List<MathConstant> constants = new ArrayList<>();
-    protected static final List<FunctionComponent> DEFAULT_FUNCTIONS = List.of(
-            new FunctionComponent.FunctionComponent1("sin", val -> ValueFactory.toValue(BigDecimalMath.sin(val.asBigDecimal(), MathContext.DECIMAL128))),
-            new FunctionComponent.FunctionComponent1("cos", val -> ValueFactory.toValue(BigDecimalMath.cos(val.asBigDecimal(), MathContext.DECIMAL128))),
-            new FunctionComponent.FunctionComponent1("tan", val -> ValueFactory.toValue(BigDecimalMath.tan(val.asBigDecimal(), MathContext.DECIMAL128))),
-            new FunctionComponent.FunctionComponent1("sqrt", val -> ValueFactory.toValue(BigDecimalMath.sqrt(val.asBigDecimal(), MathContext.DECIMAL128))),
-            new FunctionComponent.FunctionComponent2("pow", (arg1, arg2) -> ValueFactory.toValue(BigDecimalMath.pow(arg1.asBigDecimal(), arg2.asBigDecimal(), MathContext.DECIMAL128))),
-            GreatestCommonDivisorFunction.greatestCommonDivisor(),
-            LowestCommonMultipleFunction.lowestCommonMultiple()
-    );
-
-    protected static final List<MathConstant> DEFAULT_CONSTANTS = List.of(
-            new MathConstant("e", new MathComponent.Value.BigDecimalValue(new BigDecimal(String.valueOf(Math.E)))),
-            new MathConstant("pi", new MathComponent.Value.BigDecimalValue(new BigDecimal(String.valueOf(Math.PI))))
-    );
+    final List<FunctionComponent> functions = new ArrayList<>();
+    final List<MathConstant> constants = new ArrayList<>();
+    SymbolTable symbols;
+    boolean defaultFunctions;
+    boolean defaultConstants;
+    MathContext mathContext = MathUtils.DEFAULT_MATH_CONTEXT;
+    boolean bytecodeCompilation;
+    boolean commonSubexpressionElimination;
+    int parseCacheSize;
+    FunctionMemo functionMemo;
+    ForkJoinPool parallelPool;
+    long parallelCostThreshold;
+    // one list of instances per math context, so parsers rebuilt with the same context share FunctionMemo entries
+    private static final BoundedCache<MathContext, List<FunctionComponent>> FUNCTIONS = new BoundedCache<>(16);
+    protected static final List<FunctionComponent> DEFAULT_FUNCTIONS = defaultFunctions(MathUtils.DEFAULT_MATH_CONTEXT);
 
+    protected static final List<MathConstant> DEFAULT_CONSTANTS = defaultConstants(MathUtils.DEFAULT_MATH_CONTEXT);
+
+    // integer digits of the largest argument sin, cos and tan reduce, 2pi is computed to that many extra digits
+    private static final int MAX_ANGLE_DIGITS = 10_000;
+
+    static List<FunctionComponent> defaultFunctions(MathContext mathContext) {
+        return FUNCTIONS.computeIfAbsent(functionContext(mathContext), MathParserBuilder::createDefaultFunctions);
+    }
+
+    // series and constants need a limit, with unlimited precision only the arithmetic stays exact
+    private static MathContext functionContext(MathContext mathContext) {
+        return mathContext.getPrecision() == 0 ? MathUtils.DEFAULT_MATH_CONTEXT : mathContext;
+    }
+
+    private static List<FunctionComponent> createDefaultFunctions(MathContext mc) {
+        return List.of(
+                new FunctionComponent.FunctionComponent1("sin", val -> ValueFactory.toValue(BigDecimalMath.sin(reduceAngle(val.asBigDecimal(mc), mc), mc)), Math::sin, true),
+                new FunctionComponent.FunctionComponent1("cos", val -> ValueFactory.toValue(BigDecimalMath.cos(reduceAngle(val.asBigDecimal(mc), mc), mc)), Math::cos, true),
+                new FunctionComponent.FunctionComponent1("tan", val -> ValueFactory.toValue(BigDecimalMath.tan(reduceAngle(val.asBigDecimal(mc), mc), mc)), Math::tan, true),
+                new FunctionComponent.FunctionComponent1("sqrt", val -> ValueFactory.toValue(BigDecimalMath.sqrt(val.asBigDecimal(mc), mc)), Math::sqrt, true),
+                new FunctionComponent.FunctionComponent1("ln", val -> ValueFactory.toValue(BigDecimalMath.log(val.asBigDecimal(mc), mc)), Math::log, true),
+                new FunctionComponent.FunctionComponent1("log2", val -> ValueFactory.toValue(BigDecimalMath.log(val.asBigDecimal(mc), mc).divide(PrecisionConstants.of(mc).ln2(), mc)), val -> Math.log(val) / Math.log(2), true),
+                new FunctionComponent.FunctionComponent1("log10", val -> ValueFactory.toValue(BigDecimalMath.log(val.asBigDecimal(mc), mc).divide(PrecisionConstants.of(mc).ln10(), mc)), Math::log10, true),
+                new FunctionComponent.FunctionComponent2("pow", (arg1, arg2) -> ValueFactory.toValue(BigDecimalMath.pow(arg1.asBigDecimal(mc), arg2.asBigDecimal(mc), mc)), Math::pow, true),
+                GreatestCommonDivisorFunction.greatestCommonDivisor(),
+                LowestCommonMultipleFunction.lowestCommonMultiple()
+        );
+    }
+
+    static List<MathConstant> defaultConstants(MathContext mc) {
+        var constants = PrecisionConstants.of(functionContext(mc));
+        return List.of(
+                new MathConstant("e", new MathComponent.Value.BigDecimalValue(constants.e())),
+                new MathConstant("pi", new MathComponent.Value.BigDecimalValue(constants.pi()))
+        );
+    }
+
+    // trigonometric functions repeat every 2pi and their series converge fastest for small arguments,
+    // 2pi gets one extra digit per integer digit of x so the remainder keeps the requested precision
+    private static BigDecimal reduceAngle(BigDecimal x, MathContext mc) {
+        var integerDigits = x.precision() - x.scale();
+        if (integerDigits <= 0)
+            return x;
+        if (integerDigits > MAX_ANGLE_DIGITS)
+            throw new ArithmeticException("Angle has more than " + MAX_ANGLE_DIGITS + " integer digits");
+
+        var twoPi = PrecisionConstants.of(mc.getPrecision() + integerDigits).twoPi();
+        return x.abs().compareTo(twoPi) > 0 ? x.remainder(twoPi) : x;
+    }
+
+    // defaults are resolved in build(), for the math context the parser ends up with.
+    // With nothing else layered below, the parser uses the shared default symbol layer instead of copying it
     public MathParserBuilder addDefaults() {
         addDefaultFunctions();
         return addDefaultConstants();
     }
 
+    // functions and constants added to this builder are layered on top of symbols, which is shared, not copied
+    public MathParserBuilder withSymbols(SymbolTable symbols) {
+        this.symbols = symbols;
+        return this;
+    }
+
     public MathParserBuilder addFunctions(FunctionComponent... functions) {
         this.functions.addAll(List.of(functions));
         return this;
@@ -43,12 +101,12 @@ public class MathParserBuilder {
     }
 
     public MathParserBuilder addDefaultFunctions() {
-        functions.addAll(DEFAULT_FUNCTIONS);
+        defaultFunctions = true;
         return this;
     }
 
     public MathParserBuilder addDefaultConstants() {
-        constants.addAll(DEFAULT_CONSTANTS);
+        defaultConstants = true;
         return this;
     }
 
@@ -62,7 +120,75 @@ public class MathParserBuilder {
         return this;
     }
 
+    // compiled expressions become hidden classes instead of being interpreted
+    public MathParserBuilder withBytecodeCompilation(boolean bytecodeCompilation) {
+        this.bytecodeCompilation = bytecodeCompilation;
+        return this;
+    }
+
+    // repeated subexpressions become one shared node that is evaluated once
+    public MathParserBuilder withCommonSubexpressionElimination(boolean commonSubexpressionElimination) {
+        this.commonSubexpressionElimination = commonSubexpressionElimination;
+        return this;
+    }
+
+    // keeps up to maxEntries parsed trees keyed by input text, 0 disables the cache
+    public MathParserBuilder withParseCache(int maxEntries) {
+        if (maxEntries < 0)
+            throw new IllegalArgumentException("Cache size must not be negative: " + maxEntries);
+        this.parseCacheSize = maxEntries;
+        return this;
+    }
+
+    // memoizes up to maxEntries results of pure function calls
+    public MathParserBuilder withFunctionMemo(int maxEntries) {
+        return withFunctionMemo(new FunctionMemo(maxEntries));
+    }
+
+    // the same table may be passed to several builders to share results between parsers
+    public MathParserBuilder withFunctionMemo(FunctionMemo functionMemo) {
+        this.functionMemo = functionMemo;
+        return this;
+    }
+
+    // expensive independent subtrees of one expression are evaluated at the same time on pool
+    public MathParserBuilder withParallelEvaluation(ForkJoinPool pool) {
+        return withParallelEvaluation(pool, ParallelEvaluator.DEFAULT_COST_THRESHOLD);
+    }
+
+    // subtrees estimated below costThreshold (about one unit per multiplication of two 64 bit words) run inline
+    public MathParserBuilder withParallelEvaluation(ForkJoinPool pool, long costThreshold) {
+        if (costThreshold < 1)
+            throw new IllegalArgumentException("Cost threshold must be positive: " + costThreshold);
+        this.parallelPool = pool;
+        this.parallelCostThreshold = costThreshold;
+        return this;
+    }
+
+    // precision and rounding of every inexact operation and built-in function of the parser
+    public MathParserBuilder withMathContext(MathContext mathContext) {
+        this.mathContext = mathContext;
+        return this;
+    }
+
+    SymbolTable symbolTable() {
+        if (defaultFunctions && defaultConstants && symbols == null)
+            return SymbolTable.layer(SymbolTable.defaults(mathContext), functions, constants);
+
+        var functions = new ArrayList<FunctionComponent>();
+        if (defaultFunctions)
+            functions.addAll(defaultFunctions(mathContext));
+        functions.addAll(this.functions);
+
+        var constants = new ArrayList<MathConstant>();
+        if (defaultConstants)
+            constants.addAll(defaultConstants(mathContext));
+        constants.addAll(this.constants);
+
+        return SymbolTable.layer(symbols, functions, constants);
+    }
+
     public MathParser build() {
-        return new MathParser(functions.toArray(FunctionComponent[]::new), constants.toArray(MathConstant[]::new));
+        return new MathParser(this);
     }
 }
@@ -1,7 +1,6 @@
 package com.mixfa.calculator;
 
 import ch.obermuhlner.math.big.BigDecimalMath;
-import com.mixfa.calculator.functions.LowestCommonMultipleFunction;
 
 import java.math.BigDecimal;
 import java.math.BigInteger;
@@ -11,167 +10,153 @@ import static com.mixfa.calculator.MathComponent.Value.*;
 import static com.mixfa.calculator.ValueFactory.toValue;
 
 public class MathUtils {
-    private MathUtils() {
-    }
-
-    private static class RatioUtils {
-
-        public static RatioValue valueAsRatio(Value value) {
-            if (value instanceof RatioValue)
-                return (RatioValue) value;
-
-            return new RatioValue(value, ValueFactory.one());
-        }
-
-        public static Value add(RatioValue r1, RatioValue r2) {
-            if (r1.denominator().compareTo(r2.denominator()) == 0)
-                return ValueFactory.ratio(MathUtils.add(r1.numerator(), r2.numerator()), r1.denominator());
-
-            var newDenominator = LowestCommonMultipleFunction.lowestCommonMultiple(r1.denominator(), r2.denominator());
-
-            var mult1 = MathUtils.divide(r1.denominator(), newDenominator);
-            var mult2 = MathUtils.divide(r2.denominator(), newDenominator);
-
-            var numerator = MathUtils.add(
-                    mult1.equalsConstant(OptimizationConstant.ONE) ? r1.numerator() : MathUtils.divide(r1.numerator(), mult1),
-                    mult2.equalsConstant(OptimizationConstant.ONE) ? r2.numerator() : MathUtils.divide(r2.numerator(), mult2)
-            );
-
-            return ValueFactory.ratio(numerator, newDenominator);
-        }
-
-        public static Value subtract(RatioValue r1, RatioValue r2) {
-            if (r1.denominator().compareTo(r2.denominator()) == 0)
-                return ValueFactory.ratio(MathUtils.subtract(r1.numerator(), r2.numerator()), r1.denominator());
+    public static final MathContext DEFAULT_MATH_CONTEXT = MathContext.DECIMAL128;
 
-            var newDenominator = LowestCommonMultipleFunction.lowestCommonMultiple(r1.denominator(), r2.denominator());
-
-            var mult1 = MathUtils.divide(r1.denominator(), newDenominator);
-            var mult2 = MathUtils.divide(r2.denominator(), newDenominator);
-
-            var numerator = MathUtils.subtract(
-                    mult1.equalsConstant(OptimizationConstant.ONE) ? r1.numerator() : MathUtils.divide(r1.numerator(), mult1),
-                    mult2.equalsConstant(OptimizationConstant.ONE) ? r2.numerator() : MathUtils.divide(r2.numerator(), mult2)
-            );
-
-            return ValueFactory.ratio(numerator, newDenominator);
-        }
-
-        public static Value multiply(Value n1, Value d1, Value n2, Value d2) {
-            var numerator = MathUtils.multiply(n1, n2);
-            var denominator = MathUtils.multiply(d1, d2);
-
-            return ValueFactory.ratio(numerator, denominator);
-        }
-
-        public static Value multiply(RatioValue r1, RatioValue r2) {
-            return multiply(r1.numerator(), r1.denominator(), r2.numerator(), r2.denominator());
-        }
-
-        public static Value divide(RatioValue r1, RatioValue r2) {
-            return multiply(r1.numerator(), r1.denominator(), r2.denominator(), r2.numerator());
-        }
+    private MathUtils() {
     }
 
     public static Value add(MathComponent a, MathComponent b) {
-        var optimizedValue = OptimizationUtils.add(a, b);
-        if (optimizedValue != null) return optimizedValue.calculate();
-
         var aValue = a.calculate();
         var bValue = b.calculate();
 
         if (aValue instanceof RatioValue || bValue instanceof RatioValue)
-            return RatioUtils.add(
-                    RatioUtils.valueAsRatio(aValue),
-                    RatioUtils.valueAsRatio(bValue)
-            );
+            return Rational.add(aValue, bValue);
+
+        if (aValue instanceof LongValue(long x) && bValue instanceof LongValue(long y))
+            return addExact(x, y);
 
-        if (aValue instanceof BigIntValue && bValue instanceof BigIntValue)
+        if (aValue.isInteger() && bValue.isInteger())
             return toValue(aValue.asBigInteger().add(bValue.asBigInteger()));
 
         return toValue(aValue.asBigDecimal().add(bValue.asBigDecimal()));
     }
 
     public static Value subtract(MathComponent a, MathComponent b) {
-        var optimizedValue = OptimizationUtils.subtract(a, b);
-        if (optimizedValue != null) return optimizedValue.calculate();
-
         var aValue = a.calculate();
         var bValue = b.calculate();
 
         if (aValue instanceof RatioValue || bValue instanceof RatioValue)
-            return RatioUtils.subtract(
-                    RatioUtils.valueAsRatio(aValue),
-                    RatioUtils.valueAsRatio(bValue)
-            );
+            return Rational.subtract(aValue, bValue);
+
+        if (aValue instanceof LongValue(long x) && bValue instanceof LongValue(long y))
+            return subtractExact(x, y);
 
-        if (aValue instanceof BigIntValue && bValue instanceof BigIntValue)
+        if (aValue.isInteger() && bValue.isInteger())
             return toValue(aValue.asBigInteger().subtract(bValue.asBigInteger()));
 
         return toValue(aValue.asBigDecimal().subtract(bValue.asBigDecimal()));
     }
 
     public static Value divide(MathComponent a, MathComponent b) {
-        var optimizedValue = OptimizationUtils.divide(a, b);
-        if (optimizedValue != null) return optimizedValue.calculate();
+        return divide(a, b, DEFAULT_MATH_CONTEXT);
+    }
 
+    public static Value divide(MathComponent a, MathComponent b, MathContext mathContext) {
         var aValue = a.calculate();
         var bValue = b.calculate();
+        if (bValue.isZero())
+            throw new ArithmeticException("Division by zero");
 
         if (aValue instanceof RatioValue || bValue instanceof RatioValue)
-            return RatioUtils.divide(
-                    RatioUtils.valueAsRatio(aValue),
-                    RatioUtils.valueAsRatio(bValue)
-            );
+            return Rational.divide(aValue, bValue);
+
+        // MIN_VALUE / -1 overflows, it is left to BigInteger
+        if (aValue instanceof LongValue(long x) && bValue instanceof LongValue(long y) && y != -1 && x % y == 0)
+            return toValue(x / y);
 
-        if (aValue instanceof BigIntValue && bValue instanceof BigIntValue) {
+        if (aValue.isInteger() && bValue.isInteger()) {
             var repeating = isRepeatingRemainder(aValue.asBigInteger(), bValue.asBigInteger());
             if (!repeating) {
                 var remainderRemains = aValue.asBigInteger().remainder(bValue.asBigInteger()).compareTo(BigInteger.ZERO) != 0;
 
                 if (remainderRemains)
-                    return toValue(aValue.asBigDecimal().divide(bValue.asBigDecimal(), MathContext.DECIMAL128));
+                    return toValue(aValue.asBigDecimal().divide(bValue.asBigDecimal(), mathContext));
                 return toValue(aValue.asBigInteger().divide(bValue.asBigInteger()));
             }
         } else {
             var repeating = isRepeatingRemainder(aValue.asBigDecimal(), bValue.asBigDecimal());
             if (!repeating)
-                return toValue(aValue.asBigDecimal().divide(bValue.asBigDecimal(), MathContext.DECIMAL128));
+                return toValue(aValue.asBigDecimal().divide(bValue.asBigDecimal(), mathContext));
         }
 
-        return new RatioValue(aValue, bValue);
+        return Rational.of(aValue, bValue);
     }
 
     public static Value multiply(MathComponent a, MathComponent b) {
-        var optimizedValue = OptimizationUtils.multiply(a, b);
-        if (optimizedValue != null) return optimizedValue.calculate();
-
         var aValue = a.calculate();
         var bValue = b.calculate();
 
         if (aValue instanceof RatioValue || bValue instanceof RatioValue)
-            return RatioUtils.multiply(
-                    RatioUtils.valueAsRatio(aValue),
-                    RatioUtils.valueAsRatio(bValue)
-            );
+            return Rational.multiply(aValue, bValue);
+
+        if (aValue instanceof LongValue(long x) && bValue instanceof LongValue(long y))
+            return multiplyExact(x, y);
 
-        if (aValue instanceof BigIntValue && bValue instanceof BigIntValue)
+        if (aValue.isInteger() && bValue.isInteger())
             return toValue(aValue.asBigInteger().multiply(bValue.asBigInteger()));
 
         return toValue(aValue.asBigDecimal().multiply(bValue.asBigDecimal()));
     }
 
     public static Value power(MathComponent a, MathComponent b) {
-        var optimizedValue = OptimizationUtils.power(a, b);
-        if (optimizedValue != null) return optimizedValue.calculate();
+        return power(a, b, DEFAULT_MATH_CONTEXT);
+    }
 
+    public static Value power(MathComponent a, MathComponent b, MathContext mathContext) {
         var aValue = a.calculate();
         var bValue = b.calculate();
 
-        if (aValue instanceof BigIntValue && bValue instanceof BigIntValue)
-            return toValue(aValue.asBigInteger().pow(bValue.asBigInteger().intValue()));
+        if (aValue instanceof LongValue(long x) && bValue instanceof LongValue(long y) && y >= 0)
+            return powerExact(x, y);
 
-        return toValue(BigDecimalMath.pow(aValue.asBigDecimal(), bValue.asBigDecimal(), MathContext.DECIMAL128));
+        if (aValue instanceof RatioValue ratio && bValue instanceof LongValue(long y) && y > Integer.MIN_VALUE && y <= Integer.MAX_VALUE)
+            return Rational.power(ratio, (int) y);
+
+        if (aValue.isInteger() && bValue.isInteger() && bValue.signum() >= 0)
+            return toValue(aValue.asBigInteger().pow(bValue.asBigInteger().intValueExact()));
+
+        return toValue(BigDecimalMath.pow(aValue.asBigDecimal(mathContext), bValue.asBigDecimal(mathContext), mathContext));
+    }
+
+    // long arithmetic, promoted to BigInteger only when the result does not fit
+    private static Value addExact(long a, long b) {
+        try {
+            return toValue(Math.addExact(a, b));
+        } catch (ArithmeticException e) {
+            return toValue(BigInteger.valueOf(a).add(BigInteger.valueOf(b)));
+        }
+    }
+
+    private static Value subtractExact(long a, long b) {
+        try {
+            return toValue(Math.subtractExact(a, b));
+        } catch (ArithmeticException e) {
+            return toValue(BigInteger.valueOf(a).subtract(BigInteger.valueOf(b)));
+        }
+    }
+
+    private static Value multiplyExact(long a, long b) {
+        try {
+            return toValue(Math.multiplyExact(a, b));
+        } catch (ArithmeticException e) {
+            return toValue(BigInteger.valueOf(a).multiply(BigInteger.valueOf(b)));
+        }
+    }
+
+    private static Value powerExact(long base, long exponent) {
+        try {
+            long result = 1;
+            var square = base;
+            for (var e = exponent; e > 0; e >>= 1) {
+                if ((e & 1) != 0)
+                    result = Math.multiplyExact(result, square);
+                if (e > 1)
+                    square = Math.multiplyExact(square, square);
+            }
+            return toValue(result);
+        } catch (ArithmeticException e) {
+            return toValue(BigInteger.valueOf(base).pow(Math.toIntExact(exponent)));
+        }
     }
 
     public static boolean isRepeatingRemainder(BigDecimal a, BigDecimal b) {
@@ -0,0 +1,86 @@
+package com.mixfa.calculator;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+
+// builds the value of a NUMBER token in one pass over its characters,
+// integers that fit in a long never go through BigInteger parsing
+class NumberLiterals {
+    // up to 18 decimal digits always fit in a long
+    private static final int LONG_DIGITS = 18;
+    private static final int MAX_SCALE_DIGITS = 9;
+
+    private NumberLiterals() {
+    }
+
+    // the tokenizer already checked the shape: digits, optional '.' and digits, optional exponent
+    static MathComponent.Value parse(CharSequence source, int start, int end) {
+        long unscaled = 0;
+        var digits = 0;
+        var scale = 0;
+        var pos = start;
+        var decimal = false;
+
+        for (; pos < end; pos++) {
+            var c = source.charAt(pos);
+            if (c == '.') {
+                decimal = true;
+                continue;
+            }
+            if (c == 'e' || c == 'E')
+                break;
+
+            // leading zeros do not count towards the long limit
+            if (digits != 0 || c != '0')
+                ++digits;
+            unscaled = unscaled * 10 + (c - '0');
+            if (decimal)
+                ++scale;
+            if (digits > LONG_DIGITS)
+                return parseBig(source, start, end);
+        }
+
+        if (pos < end) {
+            decimal = true;
+            var exponent = parseExponent(source, pos + 1, end);
+            if (exponent == Integer.MIN_VALUE)
+                return parseBig(source, start, end);
+            scale -= exponent;
+        }
+
+        if (!decimal)
+            return ValueFactory.toValue(unscaled);
+        if (unscaled == 0)
+            return ValueFactory.zero();
+
+        return ValueFactory.toValue(BigDecimal.valueOf(unscaled, scale));
+    }
+
+    // Integer.MIN_VALUE when the exponent is too long to handle here
+    private static int parseExponent(CharSequence source, int pos, int end) {
+        var negative = false;
+        var c = source.charAt(pos);
+        if (c == '+' || c == '-') {
+            negative = c == '-';
+            ++pos;
+        }
+        if (end - pos > MAX_SCALE_DIGITS)
+            return Integer.MIN_VALUE;
+
+        var exponent = 0;
+        for (; pos < end; pos++)
+            exponent = exponent * 10 + (source.charAt(pos) - '0');
+        return negative ? -exponent : exponent;
+    }
+
+    private static MathComponent.Value parseBig(CharSequence source, int start, int end) {
+        var text = source.subSequence(start, end).toString();
+        for (int i = 0; i < text.length(); i++) {
+            var c = text.charAt(i);
+            if (c == '.' || c == 'e' || c == 'E')
+                return ValueFactory.toValue(new BigDecimal(text));
+        }
+
+        return ValueFactory.toValue(new BigInteger(text));
+    }
+}
@@ -0,0 +1,48 @@
+package com.mixfa.calculator;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.Accessors;
+
+import java.math.MathContext;
+
+@RequiredArgsConstructor
+@Accessors(fluent = true)
+@Getter
+public enum Operator {
+    ADD('+', 1, true, (a, b, mathContext) -> MathUtils.add(a, b)),
+    SUBTRACT('-', 1, true, (a, b, mathContext) -> MathUtils.subtract(a, b)),
+    MULTIPLY('*', 2, true, (a, b, mathContext) -> MathUtils.multiply(a, b)),
+    DIVIDE('/', 2, true, MathUtils::divide),
+    POWER('^', 4, false, MathUtils::power);
+
+    // mathContext only matters for results that cannot be exact
+    @FunctionalInterface
+    public interface Function {
+        MathComponent.Value apply(MathComponent a, MathComponent b, MathContext mathContext);
+    }
+
+    private final char symbol;
+    private final int precedence;
+    private final boolean leftAssociative;
+    private final Function function;
+
+    public MathComponent.Value apply(MathComponent a, MathComponent b, MathContext mathContext) {
+        return function.apply(a, b, mathContext);
+    }
+
+    public MathComponent.Value apply(MathComponent a, MathComponent b) {
+        return function.apply(a, b, MathUtils.DEFAULT_MATH_CONTEXT);
+    }
+
+    public static Operator of(Tokens.Type type) {
+        return switch (type) {
+            case PLUS -> ADD;
+            case MINUS -> SUBTRACT;
+            case STAR -> MULTIPLY;
+            case SLASH -> DIVIDE;
+            case CARET -> POWER;
+            default -> null;
+        };
+    }
+}
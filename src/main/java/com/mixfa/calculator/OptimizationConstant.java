@@ -11,10 +11,11 @@ import java.math.BigInteger;
 @Accessors(fluent = true)
 @Getter
 public enum OptimizationConstant {
-    ZERO(BigInteger.ZERO, BigDecimal.ZERO),
-    ONE(BigInteger.ONE, BigDecimal.ONE),
-    MINUS_ONE(BigInteger.ONE.negate(), BigDecimal.ONE.negate()),;
+    ZERO(0, BigInteger.ZERO, BigDecimal.ZERO),
+    ONE(1, BigInteger.ONE, BigDecimal.ONE),
+    MINUS_ONE(-1, BigInteger.ONE.negate(), BigDecimal.ONE.negate()),;
 
+    private final long longValue;
     private final BigInteger intValue;
     private final BigDecimal decimalValue;
 }
@@ -0,0 +1,171 @@
+package com.mixfa.calculator;
+
+import com.mixfa.calculator.MathComponent.AnyOperation;
+import com.mixfa.calculator.MathComponent.FunctionCall;
+import com.mixfa.calculator.MathComponent.Value;
+
+import java.math.MathContext;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+
+// evaluates independent expensive subtrees of one expression at the same time on a ForkJoinPool.
+// The plan is made once from the cost model: subtrees cheaper than the threshold become postfix
+// programs that run inline, above it the children of a node are forked when at least two of them are
+// expensive. Forks stop after MAX_FORK_DEPTH levels, which is plenty of tasks for any number of cores.
+// Tasks always run in the configured pool, also when the caller is a worker of some other pool.
+// A node shared by CommonSubexpressions is evaluated once per inline program that contains it, programs
+// on different threads do not share slots
+final class ParallelEvaluator {
+    // a unit is about one multiplication of two 64 bit words, this is a few tens of microseconds of work
+    static final long DEFAULT_COST_THRESHOLD = 100_000;
+    private static final int MAX_FORK_DEPTH = 32;
+    // plans of trees evaluated through MathParser.evaluate, compiled expressions keep their own
+    private static final int MAX_CACHED_PLANS = 1024;
+
+    private sealed interface Plan {
+    }
+
+    private record Inline(PostfixProgram program) implements Plan {
+    }
+
+    private record Operation(AnyOperation operation, Plan a, Plan b, boolean fork) implements Plan {
+    }
+
+    private record Call(FunctionCall call, Plan[] args, boolean fork) implements Plan {
+    }
+
+    private final ForkJoinPool pool;
+    private final long costThreshold;
+    private final MathContext mathContext;
+    // by identity: equal trees may still call through different memo tables, and a tree from the parse
+    // cache is the same instance every time
+    private record Root(MathComponent root) {
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof Root(MathComponent component) && component == root;
+        }
+
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(root);
+        }
+    }
+
+    private final BoundedCache<Root, Plan> plans = new BoundedCache<>(MAX_CACHED_PLANS);
+
+    ParallelEvaluator(ForkJoinPool pool, long costThreshold, MathContext mathContext) {
+        this.pool = pool;
+        this.costThreshold = costThreshold;
+        this.mathContext = mathContext;
+    }
+
+    // null when no part of the tree is worth a task of its own
+    ExactExpression prepare(MathComponent root) {
+        var plan = plan(root);
+        if (plan instanceof Inline)
+            return null;
+
+        return variables -> run(plan, variables);
+    }
+
+    Value evaluate(MathComponent root) {
+        return run(plans.computeIfAbsent(new Root(root), key -> plan(key.root())), new Value[0]);
+    }
+
+    private Plan plan(MathComponent root) {
+        var costs = new CostModel(mathContext);
+        costs.measure(root);
+        return plan(root, costs, 0);
+    }
+
+    private Value run(Plan plan, Value[] variables) {
+        if (plan instanceof Inline(PostfixProgram program))
+            return program.evaluate(variables);
+
+        // a worker of another pool would fork into its own pool, so only our own workers invoke directly
+        var task = new Task(plan, variables);
+        return ForkJoinTask.getPool() == pool ? task.invoke() : pool.invoke(task);
+    }
+
+    private boolean expensive(MathComponent component, CostModel costs) {
+        return costs.cost(component) >= costThreshold;
+    }
+
+    private Plan plan(MathComponent component, CostModel costs, int depth) {
+        if (depth == MAX_FORK_DEPTH || !expensive(component, costs))
+            return new Inline(PostfixProgram.compile(component));
+
+        return switch (component) {
+            case AnyOperation operation -> new Operation(
+                    operation,
+                    plan(operation.compA(), costs, depth + 1),
+                    plan(operation.compB(), costs, depth + 1),
+                    expensive(operation.compA(), costs) && expensive(operation.compB(), costs)
+            );
+            case FunctionCall call -> {
+                var args = new Plan[call.args().size()];
+                var expensiveArgs = 0;
+                for (int i = 0; i < args.length; i++) {
+                    args[i] = plan(call.args().get(i), costs, depth + 1);
+                    if (expensive(call.args().get(i), costs))
+                        ++expensiveArgs;
+                }
+                yield new Call(call, args, expensiveArgs > 1);
+            }
+            default -> new Inline(PostfixProgram.compile(component));
+        };
+    }
+
+    private static final class Task extends RecursiveTask<Value> {
+        private final Plan plan;
+        private final Value[] variables;
+
+        private Task(Plan plan, Value[] variables) {
+            this.plan = plan;
+            this.variables = variables;
+        }
+
+        @Override
+        protected Value compute() {
+            return evaluate(plan, variables);
+        }
+
+        private static Value evaluate(Plan plan, Value[] variables) {
+            return switch (plan) {
+                case Inline(PostfixProgram program) -> program.evaluate(variables);
+                case Operation(AnyOperation operation, Plan a, Plan b, boolean fork) -> {
+                    Value valueA;
+                    Value valueB;
+                    if (fork) {
+                        var task = new Task(a, variables).fork();
+                        valueB = evaluate(b, variables);
+                        valueA = task.join();
+                    } else {
+                        valueA = evaluate(a, variables);
+                        valueB = evaluate(b, variables);
+                    }
+                    yield operation.operator().apply(valueA, valueB, operation.mathContext());
+                }
+                case Call(FunctionCall call, Plan[] args, boolean fork) -> {
+                    var values = new Value[args.length];
+                    if (fork) {
+                        // all but the last argument are forked, the last one runs on this thread
+                        List<Task> tasks = new ArrayList<>(args.length - 1);
+                        for (int i = 0; i < args.length - 1; i++)
+                            tasks.add((Task) new Task(args[i], variables).fork());
+                        values[args.length - 1] = evaluate(args[args.length - 1], variables);
+                        for (int i = 0; i < tasks.size(); i++)
+                            values[i] = tasks.get(i).join();
+                    } else {
+                        for (int i = 0; i < args.length; i++)
+                            values[i] = evaluate(args[i], variables);
+                    }
+                    yield call.apply(values);
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,341 @@
+package com.mixfa.calculator;
+
+import com.mixfa.calculator.MathComponent.AnyOperation;
+import com.mixfa.calculator.MathComponent.FunctionCall;
+import com.mixfa.calculator.MathComponent.Value;
+import com.mixfa.calculator.MathComponent.Variable;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+
+// tree flattened into postfix instructions and run over an explicit operand stack, nothing recurses,
+// so neither building nor evaluating is limited by the call stack. Of two operands the one that needs
+// more stack slots is evaluated first (Sethi-Ullman order), so the stack grows with the width of the
+// tree: a chain of any length or nesting needs two slots, a balanced tree of n leaves about log2(n).
+// Operands that call impure functions keep their left to right order, such a right leaning chain needs
+// a slot per level, on the heap like every other slot.
+// A node referenced from several parents (see CommonSubexpressions) is evaluated once, its value is
+// kept in a slot and loaded again wherever it is used later
+final class PostfixProgram {
+    static final int CONSTANT = 0;
+    static final int VARIABLE = 1;
+    static final int OPERATION = 2;
+    // operands are on the stack in reverse order, compB below compA
+    static final int REVERSED_OPERATION = 3;
+    static final int CALL = 4;
+    // copies the top of the stack into a slot
+    static final int STORE = 5;
+    static final int LOAD = 6;
+
+    private static final Value[] NO_VARIABLES = new Value[0];
+
+    // marks a node whose children were already visited
+    private record Exit(MathComponent node) {
+    }
+
+    private final int[] opcodes;
+    // slot of LOAD and STORE
+    private final int[] operands;
+    // Value, Variable, AnyOperation or FunctionCall, depending on the opcode
+    private final MathComponent[] nodes;
+    private final double[] constants;
+    private final int maxDepth;
+    private final int slots;
+    private final int height;
+
+    private PostfixProgram(Builder builder, int height) {
+        this.opcodes = Arrays.copyOf(builder.opcodes, builder.size);
+        this.operands = Arrays.copyOf(builder.operands, builder.size);
+        this.nodes = Arrays.copyOf(builder.nodes, builder.size);
+        this.maxDepth = builder.maxDepth;
+        this.slots = builder.slots.size();
+        this.height = height;
+
+        this.constants = new double[opcodes.length];
+        for (int pc = 0; pc < opcodes.length; pc++)
+            if (opcodes[pc] == CONSTANT)
+                constants[pc] = DoubleCompiler.toDouble((Value) nodes[pc]);
+    }
+
+    private static final class Builder {
+        private final IdentityHashMap<MathComponent, Integer> needs = new IdentityHashMap<>();
+        private final IdentityHashMap<MathComponent, Integer> heights = new IdentityHashMap<>();
+        private final IdentityHashMap<MathComponent, Integer> references = new IdentityHashMap<>();
+        private final IdentityHashMap<MathComponent, Integer> slots = new IdentityHashMap<>();
+
+        private int[] opcodes = new int[16];
+        private int[] operands = new int[16];
+        private MathComponent[] nodes = new MathComponent[16];
+        private int size;
+        private int depth;
+        private int maxDepth;
+
+        private void add(int opcode, int operand, MathComponent node, int depthChange) {
+            if (size == opcodes.length) {
+                opcodes = Arrays.copyOf(opcodes, size * 2);
+                operands = Arrays.copyOf(operands, size * 2);
+                nodes = Arrays.copyOf(nodes, size * 2);
+            }
+            opcodes[size] = opcode;
+            operands[size] = operand;
+            nodes[size] = node;
+            ++size;
+
+            depth += depthChange;
+            maxDepth = Math.max(maxDepth, depth);
+        }
+
+        // stack slots needed by every inner node (its Ershov number), its height and how many parents use it,
+        // children before parents, a shared node is measured once
+        private void measure(MathComponent root) {
+            var pending = new ArrayDeque<Object>();
+            pending.push(root);
+            while (!pending.isEmpty()) {
+                switch (pending.pop()) {
+                    case Exit(AnyOperation operation) -> {
+                        var needA = need(operation.compA());
+                        var needB = need(operation.compB());
+                        needs.put(operation, reorderable(operation)
+                                ? (needA == needB ? needA + 1 : Math.max(needA, needB))
+                                : Math.max(needA, needB + 1));
+                        heights.put(operation, 1 + Math.max(height(operation.compA()), height(operation.compB())));
+                    }
+                    case Exit(FunctionCall call) -> {
+                        // arguments keep their order, the i-th one is evaluated above i finished ones
+                        var need = 1;
+                        var height = 0;
+                        for (int i = 0; i < call.args().size(); i++) {
+                            need = Math.max(need, need(call.args().get(i)) + i);
+                            height = Math.max(height, height(call.args().get(i)));
+                        }
+                        needs.put(call, need);
+                        heights.put(call, height + 1);
+                    }
+                    case AnyOperation operation -> {
+                        if (references.merge(operation, 1, Integer::sum) == 1) {
+                            pending.push(new Exit(operation));
+                            pending.push(operation.compB());
+                            pending.push(operation.compA());
+                        }
+                    }
+                    case FunctionCall call -> {
+                        if (references.merge(call, 1, Integer::sum) == 1) {
+                            pending.push(new Exit(call));
+                            call.args().forEach(pending::push);
+                        }
+                    }
+                    default -> {
+                    }
+                }
+            }
+        }
+
+        private int need(MathComponent component) {
+            return needs.getOrDefault(component, 1);
+        }
+
+        private int height(MathComponent component) {
+            return heights.getOrDefault(component, 1);
+        }
+
+        // impure calls must run left to right, and so must anything that may throw next to them
+        private static boolean reorderable(AnyOperation operation) {
+            return operation.compA().pure() && operation.compB().pure();
+        }
+
+        private boolean reversed(AnyOperation operation) {
+            return reorderable(operation) && need(operation.compB()) > need(operation.compA());
+        }
+
+        private boolean shared(MathComponent component) {
+            return references.getOrDefault(component, 0) > 1;
+        }
+
+        private void emit(MathComponent root) {
+            var pending = new ArrayDeque<Object>();
+            pending.push(root);
+            while (!pending.isEmpty()) {
+                var item = pending.pop();
+                if (item instanceof Exit(MathComponent node)) {
+                    if (node instanceof AnyOperation operation)
+                        add(reversed(operation) ? REVERSED_OPERATION : OPERATION, 0, operation, -1);
+                    else
+                        add(CALL, 0, node, 1 - ((FunctionCall) node).args().size());
+
+                    // the stack is left as it is, later uses load the slot
+                    if (shared(node)) {
+                        slots.put(node, slots.size());
+                        add(STORE, slots.size() - 1, node, 0);
+                    }
+                    continue;
+                }
+
+                var slot = slots.get(item);
+                if (slot != null) {
+                    add(LOAD, slot, (MathComponent) item, 1);
+                    continue;
+                }
+
+                switch (item) {
+                    case AnyOperation operation -> {
+                        pending.push(new Exit(operation));
+                        if (reversed(operation)) {
+                            pending.push(operation.compA());
+                            pending.push(operation.compB());
+                        } else {
+                            pending.push(operation.compB());
+                            pending.push(operation.compA());
+                        }
+                    }
+                    case FunctionCall call -> {
+                        pending.push(new Exit(call));
+                        for (int i = call.args().size() - 1; i >= 0; i--)
+                            pending.push(call.args().get(i));
+                    }
+                    case Value value -> add(CONSTANT, 0, value, 1);
+                    case Variable variable -> add(VARIABLE, variable.index(), variable, 1);
+                    case MathComponent.Unparsed unparsed -> throw new UnsupportedOperationException("Unparsed component: " + unparsed.comp());
+                    default -> throw new IllegalStateException("Unexpected node " + item);
+                }
+            }
+        }
+    }
+
+    static PostfixProgram compile(MathComponent root) {
+        var builder = new Builder();
+        builder.measure(root);
+        builder.emit(root);
+        return new PostfixProgram(builder, builder.height(root));
+    }
+
+    int size() {
+        return opcodes.length;
+    }
+
+    int opcode(int pc) {
+        return opcodes[pc];
+    }
+
+    MathComponent node(int pc) {
+        return nodes[pc];
+    }
+
+    int operand(int pc) {
+        return operands[pc];
+    }
+
+    // values of shared nodes kept during one evaluation
+    int slots() {
+        return slots;
+    }
+
+    // longest path from the root to a leaf, in nodes
+    int height() {
+        return height;
+    }
+
+    Value evaluate() {
+        return evaluate(NO_VARIABLES);
+    }
+
+    Value evaluate(Value[] variables) {
+        var stack = new Value[maxDepth];
+        var slots = this.slots == 0 ? NO_VARIABLES : new Value[this.slots];
+        var top = -1;
+
+        for (int pc = 0; pc < opcodes.length; pc++) {
+            switch (opcodes[pc]) {
+                case CONSTANT -> stack[++top] = (Value) nodes[pc];
+                case VARIABLE -> {
+                    var variable = (Variable) nodes[pc];
+                    stack[++top] = variable.index() < variables.length ? variables[variable.index()] : variable.calculate();
+                }
+                case OPERATION -> {
+                    var operation = (AnyOperation) nodes[pc];
+                    var b = stack[top--];
+                    stack[top] = operation.operator().apply(stack[top], b, operation.mathContext());
+                }
+                case REVERSED_OPERATION -> {
+                    var operation = (AnyOperation) nodes[pc];
+                    var a = stack[top--];
+                    stack[top] = operation.operator().apply(a, stack[top], operation.mathContext());
+                }
+                case CALL -> {
+                    var call = (FunctionCall) nodes[pc];
+                    var args = new Value[call.args().size()];
+                    top -= args.length;
+                    System.arraycopy(stack, top + 1, args, 0, args.length);
+                    stack[++top] = call.apply(args);
+                }
+                case STORE -> slots[operands[pc]] = stack[top];
+                case LOAD -> stack[++top] = slots[operands[pc]];
+                default -> throw new IllegalStateException("Unknown opcode " + opcodes[pc]);
+            }
+        }
+
+        return stack[0];
+    }
+
+    double evaluateDouble(double[] variables) {
+        var stack = new double[maxDepth];
+        var slots = new double[this.slots];
+        var top = -1;
+
+        for (int pc = 0; pc < opcodes.length; pc++) {
+            switch (opcodes[pc]) {
+                case CONSTANT -> stack[++top] = constants[pc];
+                case VARIABLE -> stack[++top] = variables[operands[pc]];
+                case OPERATION -> {
+                    var b = stack[top--];
+                    stack[top] = apply(((AnyOperation) nodes[pc]).operator(), stack[top], b);
+                }
+                case REVERSED_OPERATION -> {
+                    var a = stack[top--];
+                    stack[top] = apply(((AnyOperation) nodes[pc]).operator(), a, stack[top]);
+                }
+                case CALL -> top = call((FunctionCall) nodes[pc], stack, top);
+                case STORE -> slots[operands[pc]] = stack[top];
+                case LOAD -> stack[++top] = slots[operands[pc]];
+                default -> throw new IllegalStateException("Unknown opcode " + opcodes[pc]);
+            }
+        }
+
+        return stack[0];
+    }
+
+    private static double apply(Operator operator, double a, double b) {
+        return switch (operator) {
+            case ADD -> a + b;
+            case SUBTRACT -> a - b;
+            case MULTIPLY -> a * b;
+            case DIVIDE -> a / b;
+            case POWER -> Math.pow(a, b);
+        };
+    }
+
+    // arguments are the top of the stack, the result replaces them
+    private static int call(FunctionCall call, double[] stack, int top) {
+        switch (call.function()) {
+            case FunctionComponent.FunctionComponent0 fc0 when fc0.doubleFunction() != null -> {
+                stack[++top] = fc0.doubleFunction().getAsDouble();
+                return top;
+            }
+            case FunctionComponent.FunctionComponent1 fc1 when fc1.doubleFunction() != null -> {
+                stack[top] = fc1.doubleFunction().applyAsDouble(stack[top]);
+                return top;
+            }
+            case FunctionComponent.FunctionComponent2 fc2 when fc2.doubleFunction() != null -> {
+                stack[top - 1] = fc2.doubleFunction().applyAsDouble(stack[top - 1], stack[top]);
+                return top - 1;
+            }
+            default -> {
+            }
+        }
+
+        var args = Arrays.copyOfRange(stack, top - call.args().size() + 1, top + 1);
+        top -= args.length;
+        stack[++top] = DoubleCompiler.apply(call.function(), args);
+        return top;
+    }
+}
@@ -0,0 +1,61 @@
+package com.mixfa.calculator;
+
+import ch.obermuhlner.math.big.BigDecimalMath;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.math.RoundingMode;
+import java.util.function.Supplier;
+
+// constants at a given precision, each one computed on first use and then shared by every parser and thread.
+// Precisions come from user input too (angle reduction adds the integer digits of the argument), so only
+// the most recently used ones are kept
+public final class PrecisionConstants {
+    private static final BoundedCache<Integer, PrecisionConstants> CACHE = new BoundedCache<>(64);
+
+    private final Supplier<BigDecimal> pi;
+    private final Supplier<BigDecimal> e;
+    private final Supplier<BigDecimal> ln2;
+    private final Supplier<BigDecimal> ln10;
+    private final Supplier<BigDecimal> twoPi;
+
+    private PrecisionConstants(MathContext mc) {
+        this.pi = StableValue.supplier(() -> BigDecimalMath.pi(mc));
+        this.e = StableValue.supplier(() -> BigDecimalMath.e(mc));
+        this.ln2 = StableValue.supplier(() -> BigDecimalMath.log(BigDecimal.TWO, mc));
+        this.ln10 = StableValue.supplier(() -> BigDecimalMath.log(BigDecimal.TEN, mc));
+        this.twoPi = StableValue.supplier(() -> pi().multiply(BigDecimal.TWO, mc));
+    }
+
+    // keyed by precision only, values are rounded half even whatever the rounding mode of mc
+    public static PrecisionConstants of(MathContext mc) {
+        return of(mc.getPrecision());
+    }
+
+    public static PrecisionConstants of(int precision) {
+        if (precision <= 0)
+            throw new IllegalArgumentException("Constants need a limited precision: " + precision);
+
+        return CACHE.computeIfAbsent(precision, key -> new PrecisionConstants(new MathContext(key, RoundingMode.HALF_EVEN)));
+    }
+
+    public BigDecimal pi() {
+        return pi.get();
+    }
+
+    public BigDecimal e() {
+        return e.get();
+    }
+
+    public BigDecimal ln2() {
+        return ln2.get();
+    }
+
+    public BigDecimal ln10() {
+        return ln10.get();
+    }
+
+    public BigDecimal twoPi() {
+        return twoPi.get();
+    }
+}
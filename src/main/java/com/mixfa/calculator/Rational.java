@@ -0,0 +1,174 @@
+package com.mixfa.calculator;
+
+import com.mixfa.calculator.MathComponent.Value;
+import com.mixfa.calculator.MathComponent.Value.BigDecimalValue;
+import com.mixfa.calculator.MathComponent.Value.BigIntValue;
+import com.mixfa.calculator.MathComponent.Value.LongValue;
+import com.mixfa.calculator.MathComponent.Value.RatioValue;
+import com.mixfa.calculator.functions.GreatestCommonDivisorFunction;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+
+import static com.mixfa.calculator.ValueFactory.toValue;
+
+// exact fraction arithmetic, every value is seen as numerator/denominator (integers and decimals have
+// an integer denominator too) and combined by cross multiplication. Results are reduced once, when the
+// RatioValue is created, longs are used while nothing overflows
+class Rational {
+    private Rational() {
+    }
+
+    // integer when the reduced denominator is 1
+    static Value of(Value numerator, Value denominator) {
+        var ratio = new RatioValue(numerator, denominator);
+        return ratio.denominator().equalsConstant(OptimizationConstant.ONE) ? ratio.numerator() : ratio;
+    }
+
+    // canonical numerator and denominator: integers, denominator positive, no common divisor
+    static Value[] normalize(Value numerator, Value denominator) {
+        if (denominator.isZero())
+            throw new ArithmeticException("Division by zero");
+
+        // Long.MIN_VALUE has no positive long counterpart, leave it to BigInteger
+        if (numerator instanceof LongValue(long n) && denominator instanceof LongValue(long d) && n != Long.MIN_VALUE && d != Long.MIN_VALUE) {
+            if (d < 0) {
+                n = -n;
+                d = -d;
+            }
+            if (d == 1)
+                return new Value[]{toValue(n), LongValue.one()};
+
+            var gcd = Math.abs(GreatestCommonDivisorFunction.findGCD(n, d));
+            return new Value[]{toValue(n / gcd), toValue(d / gcd)};
+        }
+
+        var a = parts(numerator);
+        var b = parts(denominator);
+        var n = a[0].multiply(b[1]);
+        var d = a[1].multiply(b[0]);
+        if (d.signum() < 0) {
+            n = n.negate();
+            d = d.negate();
+        }
+
+        var gcd = n.gcd(d);
+        if (!gcd.equals(BigInteger.ONE)) {
+            n = n.divide(gcd);
+            d = d.divide(gcd);
+        }
+        return new Value[]{toValue(n), toValue(d)};
+    }
+
+    // numerator and denominator of any value, the denominator is positive
+    static BigInteger[] parts(Value value) {
+        return switch (value) {
+            case LongValue(long v) -> new BigInteger[]{BigInteger.valueOf(v), BigInteger.ONE};
+            case BigIntValue(BigInteger v) -> new BigInteger[]{v, BigInteger.ONE};
+            case BigDecimalValue(BigDecimal v) -> v.scale() > 0
+                    ? new BigInteger[]{v.unscaledValue(), BigInteger.TEN.pow(v.scale())}
+                    : new BigInteger[]{v.toBigIntegerExact(), BigInteger.ONE};
+            case RatioValue(Value n, Value d) -> new BigInteger[]{n.asBigInteger(), d.asBigInteger()};
+        };
+    }
+
+    // decimals become exact fractions, 0.25 -> 1/4
+    private static Value exact(Value value) {
+        return value instanceof BigDecimalValue ? of(value, LongValue.one()) : value;
+    }
+
+    private static Value numerator(Value value) {
+        return value instanceof RatioValue ratio ? ratio.numerator() : value;
+    }
+
+    private static Value denominator(Value value) {
+        return value instanceof RatioValue ratio ? ratio.denominator() : LongValue.one();
+    }
+
+    private static boolean isLong(Value value) {
+        return value instanceof LongValue || (value instanceof RatioValue(Value n, Value d) && n instanceof LongValue && d instanceof LongValue);
+    }
+
+    static Value add(Value a, Value b) {
+        return addOrSubtract(a, b, false);
+    }
+
+    static Value subtract(Value a, Value b) {
+        return addOrSubtract(a, b, true);
+    }
+
+    private static Value addOrSubtract(Value a, Value b, boolean subtract) {
+        a = exact(a);
+        b = exact(b);
+
+        var n1 = numerator(a);
+        var d1 = denominator(a);
+        var n2 = numerator(b);
+        var d2 = denominator(b);
+
+        if (isLong(a) && isLong(b)) {
+            try {
+                var x1 = ((LongValue) n1).value();
+                var y1 = ((LongValue) d1).value();
+                var x2 = ((LongValue) n2).value();
+                var y2 = ((LongValue) d2).value();
+                if (subtract)
+                    x2 = Math.negateExact(x2);
+
+                if (y1 == y2)
+                    return of(toValue(Math.addExact(x1, x2)), d1);
+                return of(
+                        toValue(Math.addExact(Math.multiplyExact(x1, y2), Math.multiplyExact(x2, y1))),
+                        toValue(Math.multiplyExact(y1, y2))
+                );
+            } catch (ArithmeticException e) {
+                // overflow, redo it with BigInteger
+            }
+        }
+
+        var x1 = n1.asBigInteger();
+        var y1 = d1.asBigInteger();
+        var x2 = subtract ? n2.asBigInteger().negate() : n2.asBigInteger();
+        var y2 = d2.asBigInteger();
+
+        if (y1.equals(y2))
+            return of(toValue(x1.add(x2)), d1);
+        return of(toValue(x1.multiply(y2).add(x2.multiply(y1))), toValue(y1.multiply(y2)));
+    }
+
+    static Value multiply(Value a, Value b) {
+        a = exact(a);
+        b = exact(b);
+        return multiply(numerator(a), denominator(a), numerator(b), denominator(b));
+    }
+
+    static Value divide(Value a, Value b) {
+        if (b.isZero())
+            throw new ArithmeticException("Division by zero");
+
+        a = exact(a);
+        b = exact(b);
+        return multiply(numerator(a), denominator(a), denominator(b), numerator(b));
+    }
+
+    private static Value multiply(Value n1, Value d1, Value n2, Value d2) {
+        if (n1 instanceof LongValue(long x1) && d1 instanceof LongValue(long y1) && n2 instanceof LongValue(long x2) && d2 instanceof LongValue(long y2)) {
+            try {
+                return of(toValue(Math.multiplyExact(x1, x2)), toValue(Math.multiplyExact(y1, y2)));
+            } catch (ArithmeticException e) {
+                // overflow, redo it with BigInteger
+            }
+        }
+
+        return of(
+                toValue(n1.asBigInteger().multiply(n2.asBigInteger())),
+                toValue(d1.asBigInteger().multiply(d2.asBigInteger()))
+        );
+    }
+
+    static Value power(RatioValue base, int exponent) {
+        var n = base.numerator().asBigInteger().pow(Math.abs(exponent));
+        var d = base.denominator().asBigInteger().pow(Math.abs(exponent));
+        return exponent >= 0 ? of(toValue(n), toValue(d)) : of(toValue(d), toValue(n));
+    }
+}
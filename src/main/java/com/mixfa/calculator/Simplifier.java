@@ -0,0 +1,229 @@
+package com.mixfa.calculator;
+
+import com.mixfa.calculator.MathComponent.AnyOperation;
+import com.mixfa.calculator.MathComponent.FunctionCall;
+import com.mixfa.calculator.MathComponent.Value;
+import com.mixfa.calculator.MathComponent.Variable;
+
+import java.math.MathContext;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+// rewrite pass over a parsed tree: constant folding, identities (x+0, x*1, x/1, x^1), annihilators (x*0, x^0)
+// and double negation. Only subtrees that already are values get evaluated, everything else is matched
+// by shape. Folding is limited to what the cost model rates cheap, user functions are never called here,
+// so parsing does not take over the cost of evaluation. Nodes are visited bottom up with an explicit stack,
+// so deep chains do not recurse
+class Simplifier {
+    // about a few tens of microseconds, larger constant subtrees are left for evaluation
+    private static final double MAX_FOLD_COST = ParallelEvaluator.DEFAULT_COST_THRESHOLD;
+
+    // marks a node whose children are already simplified and on top of the results
+    private record Rebuild(MathComponent node) {
+    }
+
+    private final CostModel costs;
+    private final boolean exact;
+    // subtrees that evaluate without error in exact mode: values, variables and +, -, * of them
+    private final Set<MathComponent> total = Collections.newSetFromMap(new IdentityHashMap<>());
+
+    private Simplifier(MathContext mathContext, boolean exact) {
+        this.costs = new CostModel(mathContext);
+        this.exact = exact;
+    }
+
+    // exact is false for trees compiled for EvaluationMode.DOUBLE, where 0 * Infinity is NaN, not 0
+    static MathComponent simplify(MathComponent root, MathContext mathContext, boolean exact) {
+        return new Simplifier(mathContext, exact).simplify(root);
+    }
+
+    private MathComponent simplify(MathComponent root) {
+        var pending = new ArrayDeque<Object>();
+        var results = new ArrayList<MathComponent>();
+        pending.push(root);
+
+        while (!pending.isEmpty()) {
+            var item = pending.pop();
+            if (item instanceof Rebuild(MathComponent node)) {
+                results.add(rebuild(node, results));
+                continue;
+            }
+
+            switch (item) {
+                case AnyOperation operation -> {
+                    pending.push(new Rebuild(operation));
+                    pending.push(operation.compB());
+                    pending.push(operation.compA());
+                }
+                case FunctionCall call -> {
+                    pending.push(new Rebuild(call));
+                    for (int i = call.args().size() - 1; i >= 0; i--)
+                        pending.push(call.args().get(i));
+                }
+                case Variable variable -> {
+                    total.add(variable);
+                    results.add(variable);
+                }
+                default -> results.add((MathComponent) item);
+            }
+        }
+
+        return results.getFirst();
+    }
+
+    private MathComponent rebuild(MathComponent node, ArrayList<MathComponent> results) {
+        return switch (node) {
+            case AnyOperation operation -> {
+                var compB = results.removeLast();
+                var compA = results.removeLast();
+                var simplified = operation(operation, compA, compB);
+                if (simplified instanceof AnyOperation result && result.operator() != Operator.DIVIDE && result.operator() != Operator.POWER
+                        && total(result.compA()) && total(result.compB()))
+                    total.add(result);
+                yield simplified;
+            }
+            case FunctionCall call -> {
+                var args = results.subList(results.size() - call.args().size(), results.size());
+                var simplified = call(call, args);
+                args.clear();
+                yield simplified;
+            }
+            default -> node;
+        };
+    }
+
+    private boolean total(MathComponent component) {
+        return component instanceof Value || total.contains(component);
+    }
+
+    private boolean cheap(MathComponent component) {
+        costs.measure(component);
+        return costs.cost(component) <= MAX_FOLD_COST;
+    }
+
+    private MathComponent call(FunctionCall call, List<MathComponent> args) {
+        var rebuilt = args.equals(call.args()) ? call : new FunctionCall(call.function(), args, call.memo());
+        if (call.function().pure() && costs.estimated(call.function()) && args.stream().allMatch(Value.class::isInstance) && cheap(rebuilt)) {
+            try {
+                return rebuilt.apply(args.toArray(Value[]::new));
+            } catch (RuntimeException e) {
+                // left for evaluation, where the error belongs
+            }
+        }
+
+        return rebuilt;
+    }
+
+    private MathComponent operation(AnyOperation node, MathComponent a, MathComponent b) {
+        var operator = node.operator();
+        var mathContext = node.mathContext();
+        var rebuilt = a == node.compA() && b == node.compB() ? node : new AnyOperation(a, b, operator, mathContext);
+
+        if (a instanceof Value x && b instanceof Value y && cheap(rebuilt)) {
+            try {
+                return operator.apply(x, y, mathContext);
+            } catch (RuntimeException e) {
+                // 1/0 still parses and fails when evaluated
+            }
+        }
+
+        var simplified = switch (operator) {
+            case ADD -> add(a, b, mathContext);
+            case SUBTRACT -> subtract(a, b, mathContext);
+            case MULTIPLY -> multiply(a, b, mathContext);
+            case DIVIDE -> divide(a, b, mathContext);
+            case POWER -> power(a, b);
+        };
+        return simplified != null ? simplified : rebuilt;
+    }
+
+    private static boolean is(MathComponent component, OptimizationConstant constant) {
+        return component instanceof Value value && value.equalsConstant(constant);
+    }
+
+    // operand of -x, which the parser builds as 0 - x
+    private static MathComponent negated(MathComponent component) {
+        if (component instanceof AnyOperation operation && operation.operator() == Operator.SUBTRACT && is(operation.compA(), OptimizationConstant.ZERO))
+            return operation.compB();
+
+        return null;
+    }
+
+    private static MathComponent negate(MathComponent component, MathContext mathContext) {
+        if (component instanceof Value value)
+            return value.negate();
+
+        var operand = negated(component);
+        if (operand != null)
+            return operand;
+
+        return new AnyOperation(ValueFactory.zero(), component, Operator.SUBTRACT, mathContext);
+    }
+
+    private static MathComponent add(MathComponent a, MathComponent b, MathContext mathContext) {
+        if (is(a, OptimizationConstant.ZERO))
+            return b;
+        if (is(b, OptimizationConstant.ZERO))
+            return a;
+
+        var operand = negated(b);
+        if (operand != null)
+            return new AnyOperation(a, operand, Operator.SUBTRACT, mathContext);
+        operand = negated(a);
+        if (operand != null)
+            return new AnyOperation(b, operand, Operator.SUBTRACT, mathContext);
+
+        return null;
+    }
+
+    private static MathComponent subtract(MathComponent a, MathComponent b, MathContext mathContext) {
+        if (is(b, OptimizationConstant.ZERO))
+            return a;
+
+        // a - -x = a + x, and -(-x) = x
+        var operand = negated(b);
+        if (operand != null)
+            return is(a, OptimizationConstant.ZERO) ? operand : new AnyOperation(a, operand, Operator.ADD, mathContext);
+
+        return null;
+    }
+
+    private MathComponent multiply(MathComponent a, MathComponent b, MathContext mathContext) {
+        // only in exact mode and only when dropping the other operand loses no call and no error
+        if (exact && (is(a, OptimizationConstant.ZERO) && total(b) || is(b, OptimizationConstant.ZERO) && total(a)))
+            return ValueFactory.zero();
+        if (is(a, OptimizationConstant.ONE))
+            return b;
+        if (is(b, OptimizationConstant.ONE))
+            return a;
+        if (is(a, OptimizationConstant.MINUS_ONE))
+            return negate(b, mathContext);
+        if (is(b, OptimizationConstant.MINUS_ONE))
+            return negate(a, mathContext);
+
+        return null;
+    }
+
+    private static MathComponent divide(MathComponent a, MathComponent b, MathContext mathContext) {
+        if (is(b, OptimizationConstant.ONE))
+            return a;
+        if (is(b, OptimizationConstant.MINUS_ONE))
+            return negate(a, mathContext);
+
+        return null;
+    }
+
+    private MathComponent power(MathComponent a, MathComponent b) {
+        // x^0 is 1 for every exact x, 0^0 included
+        if (exact && is(b, OptimizationConstant.ZERO) && total(a))
+            return ValueFactory.one();
+        if (is(b, OptimizationConstant.ONE))
+            return a;
+
+        return null;
+    }
+}
@@ -0,0 +1,192 @@
+package com.mixfa.calculator;
+
+import java.math.MathContext;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// immutable layer of functions and constants stored in a trie, a lookup costs one step per character
+// no matter how many names are registered. Layers are chained: a lookup that misses falls through to
+// the parent, so any number of parsers can share one parent layer without copying it
+public final class SymbolTable {
+    // the standard contexts stay for good, any other precision is kept in a small LRU cache so parsers
+    // built with ever changing precisions do not keep a table for each of them
+    private static final Map<MathContext, SymbolTable> STANDARD_DEFAULTS = new ConcurrentHashMap<>();
+    private static final BoundedCache<MathContext, SymbolTable> OTHER_DEFAULTS = new BoundedCache<>(16);
+
+    private static final class Node {
+        private char[] keys = new char[0];
+        private Node[] children = new Node[0];
+        private FunctionComponent function;
+        private MathComponent symbol;
+
+        private Node child(char c) {
+            var index = Arrays.binarySearch(keys, c);
+            return index < 0 ? null : children[index];
+        }
+
+        private Node getOrCreateChild(char c) {
+            var index = Arrays.binarySearch(keys, c);
+            if (index >= 0)
+                return children[index];
+
+            index = -index - 1;
+            var child = new Node();
+            keys = insert(keys, index, c);
+            children = insert(children, index, child);
+            return child;
+        }
+
+        private static char[] insert(char[] array, int index, char value) {
+            var result = new char[array.length + 1];
+            System.arraycopy(array, 0, result, 0, index);
+            result[index] = value;
+            System.arraycopy(array, index, result, index + 1, array.length - index);
+            return result;
+        }
+
+        private static Node[] insert(Node[] array, int index, Node value) {
+            var result = new Node[array.length + 1];
+            System.arraycopy(array, 0, result, 0, index);
+            result[index] = value;
+            System.arraycopy(array, index, result, index + 1, array.length - index);
+            return result;
+        }
+    }
+
+    private final SymbolTable parent;
+    private final Node root = new Node();
+    private final int functionsCount;
+    private final int symbolsCount;
+
+    // later entries replace earlier ones with the same name, entries of this layer shadow the parent's
+    private SymbolTable(SymbolTable parent, Collection<FunctionComponent> functions, Collection<MathConstant> constants, Collection<MathComponent.Variable> variables) {
+        this.parent = parent;
+
+        var functionsCount = 0;
+        for (FunctionComponent function : functions)
+            if (put(function.prefix(), function))
+                ++functionsCount;
+
+        var symbolsCount = 0;
+        for (MathConstant constant : constants)
+            if (put(constant.name(), constant.value()))
+                ++symbolsCount;
+        for (MathComponent.Variable variable : variables)
+            if (put(variable.name(), variable))
+                ++symbolsCount;
+
+        this.functionsCount = functionsCount;
+        this.symbolsCount = symbolsCount;
+    }
+
+    public static SymbolTable of(Collection<FunctionComponent> functions, Collection<MathConstant> constants) {
+        return new SymbolTable(null, functions, constants, List.of());
+    }
+
+    // built-in functions and constants, created once per math context and shared by every parser built with addDefaults()
+    public static SymbolTable defaults() {
+        return defaults(MathUtils.DEFAULT_MATH_CONTEXT);
+    }
+
+    public static SymbolTable defaults(MathContext mathContext) {
+        return standard(mathContext)
+                ? STANDARD_DEFAULTS.computeIfAbsent(mathContext, SymbolTable::buildDefaults)
+                : OTHER_DEFAULTS.computeIfAbsent(mathContext, SymbolTable::buildDefaults);
+    }
+
+    private static boolean standard(MathContext mathContext) {
+        return mathContext.equals(MathContext.DECIMAL32) || mathContext.equals(MathContext.DECIMAL64) || mathContext.equals(MathContext.DECIMAL128);
+    }
+
+    private static SymbolTable buildDefaults(MathContext mathContext) {
+        return SymbolTable.of(MathParserBuilder.defaultFunctions(mathContext), MathParserBuilder.defaultConstants(mathContext));
+    }
+
+    public SymbolTable withLayer(Collection<FunctionComponent> functions, Collection<MathConstant> constants) {
+        return new SymbolTable(this, functions, constants, List.of());
+    }
+
+    // parent may be null
+    static SymbolTable layer(SymbolTable parent, Collection<FunctionComponent> functions, Collection<MathConstant> constants) {
+        if (parent != null && functions.isEmpty() && constants.isEmpty())
+            return parent;
+
+        return new SymbolTable(parent, functions, constants, List.of());
+    }
+
+    SymbolTable withVariables(Collection<MathComponent.Variable> variables) {
+        return new SymbolTable(this, List.of(), List.of(), variables);
+    }
+
+    private Node insertionNode(String name) {
+        var node = root;
+        for (int i = 0; i < name.length(); i++)
+            node = node.getOrCreateChild(name.charAt(i));
+        return node;
+    }
+
+    // returns false when the name was already taken in this layer
+    private boolean put(String name, FunctionComponent function) {
+        var node = insertionNode(name);
+        var added = node.function == null;
+        node.function = function;
+        return added;
+    }
+
+    private boolean put(String name, MathComponent symbol) {
+        var node = insertionNode(name);
+        var added = node.symbol == null;
+        node.symbol = symbol;
+        return added;
+    }
+
+    private Node find(CharSequence source, int start, int end) {
+        var node = root;
+        for (int i = start; i < end && node != null; i++)
+            node = node.child(source.charAt(i));
+        return node;
+    }
+
+    public FunctionComponent function(CharSequence source, int start, int end) {
+        for (var table = this; table != null; table = table.parent) {
+            var node = table.find(source, start, end);
+            if (node != null && node.function != null)
+                return node.function;
+        }
+        return null;
+    }
+
+    public FunctionComponent function(CharSequence name) {
+        return function(name, 0, name.length());
+    }
+
+    // constant value or bound variable
+    public MathComponent symbol(CharSequence source, int start, int end) {
+        for (var table = this; table != null; table = table.parent) {
+            var node = table.find(source, start, end);
+            if (node != null && node.symbol != null)
+                return node.symbol;
+        }
+        return null;
+    }
+
+    public MathComponent symbol(CharSequence name) {
+        return symbol(name, 0, name.length());
+    }
+
+    public SymbolTable parent() {
+        return parent;
+    }
+
+    // entries of this layer only
+    public int functionsCount() {
+        return functionsCount;
+    }
+
+    public int symbolsCount() {
+        return symbolsCount;
+    }
+}
@@ -1,113 +1,88 @@
 package com.mixfa.calculator;
 
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Stack;
-import java.util.StringTokenizer;
-import java.util.function.Consumer;
-import java.util.regex.Pattern;
+import com.mixfa.calculator.exception.MathParsingException;
 
 public class Tokenizer {
-    private static final Pattern FUNC_PATTERN = Pattern.compile("([a-z]\\w*)");
-    private static final String ALL_OPERATORS = "+-/*^()";
-
-    static String findClosingBracket(Stack<String> cachedTokens, StringTokenizer tokenizer) {
-        int bracketCount = 1;
-        StringBuilder tokenBuilder = new StringBuilder();
-        while (hasMoreTokens(cachedTokens, tokenizer)) {
-            var token = nextToken(cachedTokens, tokenizer);
-            tokenBuilder.append(token);
-
-            if (token.equals("("))
-                ++bracketCount;
-            else if (token.equals(")"))
-                --bracketCount;
-
-            if (bracketCount == 0)
-                return tokenBuilder.toString();
-        }
+    private Tokenizer() {
+    }
 
-        throw new RuntimeException("Closing bracket not found");
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
     }
 
-    private static boolean hasMoreTokens(Stack<String> cachedTokens, StringTokenizer tokenizer) {
-        return !cachedTokens.empty() || tokenizer.hasMoreTokens();
+    private static boolean isIdentifierStart(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || c == '_' || (c > 127 && Character.isLetter(c));
     }
 
-    private static String nextToken(Stack<String> cachedTokens, StringTokenizer tokenizer) {
-        return cachedTokens.empty() ? tokenizer.nextToken() : cachedTokens.pop();
+    private static boolean isIdentifierPart(char c) {
+        return isIdentifierStart(c) || isDigit(c);
     }
 
-    public static List<String> tokenize(String str) {
-        var tokens = new ArrayList<String>();
-        var tokenizer = new StringTokenizer(str, ALL_OPERATORS, true);
-        var cachedTokens = new Stack<String>();
+    private static int scanDigits(CharSequence input, int pos, int length) {
+        while (pos < length && isDigit(input.charAt(pos)))
+            ++pos;
+        return pos;
+    }
 
-        var firstToken = true;
-        while (hasMoreTokens(cachedTokens, tokenizer)) {
-            String token = nextToken(cachedTokens, tokenizer);
-            if (token.isBlank()) continue;
-            if (firstToken) {
-                firstToken = false;
-                if ("+-".contains(token)) {
-                    if (hasMoreTokens(cachedTokens, tokenizer))
-                        token += nextToken(cachedTokens, tokenizer);
-                    else
-                        throw new RuntimeException("First token is a sign, but next token not found");
-                }
-            }
-            if (hasMoreTokens(cachedTokens, tokenizer)) {
-                var nextToken = nextToken(cachedTokens, tokenizer);
+    private static int scanNumber(CharSequence input, int pos, int length) {
+        pos = scanDigits(input, pos, length);
+        if (pos < length && input.charAt(pos) == '.')
+            pos = scanDigits(input, pos + 1, length);
 
-                if (nextToken.equals("(")) {
-                    if (FUNC_PATTERN.matcher(token).matches()) {
-                        token += "(" + findClosingBracket(cachedTokens, tokenizer);
-                    } else
-                        cachedTokens.push(nextToken);
-                } else
-                    cachedTokens.push(nextToken);
-            }
-            if (token.equals("(")) {
-                token += findClosingBracket(cachedTokens, tokenizer);
-            }
-            tokens.add(token);
+        if (pos < length && (input.charAt(pos) == 'e' || input.charAt(pos) == 'E')) {
+            var exponentPos = pos + 1;
+            if (exponentPos < length && (input.charAt(exponentPos) == '+' || input.charAt(exponentPos) == '-'))
+                ++exponentPos;
+            // "2e" is not an exponent, leave the 'e' for the identifier scanner
+            if (exponentPos < length && isDigit(input.charAt(exponentPos)))
+                pos = scanDigits(input, exponentPos, length);
         }
+        return pos;
+    }
 
-        return tokens;
+    private static Tokens.Type operatorType(char c) {
+        return switch (c) {
+            case '+' -> Tokens.Type.PLUS;
+            case '-' -> Tokens.Type.MINUS;
+            case '*' -> Tokens.Type.STAR;
+            case '/' -> Tokens.Type.SLASH;
+            case '^' -> Tokens.Type.CARET;
+            case '(' -> Tokens.Type.LEFT_BRACKET;
+            case ')' -> Tokens.Type.RIGHT_BRACKET;
+            case ',' -> Tokens.Type.COMMA;
+            default -> null;
+        };
     }
 
-    public static void tokenize(String str, Consumer<String> tokenConsumer) {
-        var tokenizer = new StringTokenizer(str, ALL_OPERATORS, true);
-        var cachedTokens = new Stack<String>();
+    public static Tokens tokenize(CharSequence input) throws MathParsingException {
+        var length = input.length();
+        var tokens = new Tokens(input, Math.max(4, length / 2));
 
-        var firstToken = true;
-        while (hasMoreTokens(cachedTokens, tokenizer)) {
-            String token = nextToken(cachedTokens, tokenizer);
-            if (token.isBlank()) continue;
-            if (firstToken) {
-                firstToken = false;
-                if ("+-".contains(token)) {
-                    if (hasMoreTokens(cachedTokens, tokenizer))
-                        token += nextToken(cachedTokens, tokenizer);
-                    else
-                        throw new RuntimeException("First token is a sign, but next token not found");
-                }
-            }
-            if (hasMoreTokens(cachedTokens, tokenizer)) {
-                var nextToken = nextToken(cachedTokens, tokenizer);
+        var pos = 0;
+        while (pos < length) {
+            var c = input.charAt(pos);
 
-                if (nextToken.equals("(")) {
-                    if (FUNC_PATTERN.matcher(token).matches()) {
-                        token += "(" + findClosingBracket(cachedTokens, tokenizer);
-                    } else
-                        cachedTokens.push(nextToken);
-                } else
-                    cachedTokens.push(nextToken);
+            if (Character.isWhitespace(c)) {
+                ++pos;
+            } else if (isDigit(c) || (c == '.' && pos + 1 < length && isDigit(input.charAt(pos + 1)))) {
+                var end = scanNumber(input, pos, length);
+                tokens.add(Tokens.Type.NUMBER, pos, end);
+                pos = end;
+            } else if (isIdentifierStart(c)) {
+                var end = pos + 1;
+                while (end < length && isIdentifierPart(input.charAt(end)))
+                    ++end;
+                tokens.add(Tokens.Type.IDENTIFIER, pos, end);
+                pos = end;
+            } else {
+                var type = operatorType(c);
+                if (type == null)
+                    throw new MathParsingException("Unexpected character '" + c + "' at " + pos);
+                tokens.add(type, pos, pos + 1);
+                ++pos;
             }
-            if (token.equals("(")) {
-                token += findClosingBracket(cachedTokens, tokenizer);
-            }
-            tokenConsumer.accept(token);
         }
+
+        return tokens;
     }
-}
\ No newline at end of file
+}
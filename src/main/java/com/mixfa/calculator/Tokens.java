@@ -0,0 +1,75 @@
+package com.mixfa.calculator;
+
+import java.util.Arrays;
+
+// flat token stream, every token is a type and [start, end) offsets into the source
+public final class Tokens {
+    public enum Type {
+        NUMBER,
+        IDENTIFIER,
+        PLUS,
+        MINUS,
+        STAR,
+        SLASH,
+        CARET,
+        LEFT_BRACKET,
+        RIGHT_BRACKET,
+        COMMA
+    }
+
+    private final CharSequence source;
+    private Type[] types;
+    private int[] offsets;
+    private int size;
+
+    Tokens(CharSequence source, int capacity) {
+        this.source = source;
+        this.types = new Type[capacity];
+        this.offsets = new int[capacity * 2];
+    }
+
+    void add(Type type, int start, int end) {
+        if (size == types.length) {
+            types = Arrays.copyOf(types, size * 2);
+            offsets = Arrays.copyOf(offsets, size * 4);
+        }
+        types[size] = type;
+        offsets[size * 2] = start;
+        offsets[size * 2 + 1] = end;
+        ++size;
+    }
+
+    public CharSequence source() {
+        return source;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public Type type(int index) {
+        return types[index];
+    }
+
+    public int start(int index) {
+        return offsets[index * 2];
+    }
+
+    public int end(int index) {
+        return offsets[index * 2 + 1];
+    }
+
+    public String text(int index) {
+        return source.subSequence(start(index), end(index)).toString();
+    }
+
+    @Override
+    public String toString() {
+        var builder = new StringBuilder("[");
+        for (int i = 0; i < size; i++) {
+            if (i != 0) builder.append(", ");
+            builder.append(types[i]).append('(').append(source, start(i), end(i)).append(')');
+        }
+        return builder.append(']').toString();
+    }
+}
@@ -1,50 +1,35 @@
 package com.mixfa.calculator;
 
-import com.mixfa.calculator.functions.GreatestCommonDivisorFunction;
-
 import java.math.BigDecimal;
 import java.math.BigInteger;
 
 public interface ValueFactory {
     public static MathComponent.Value zero() {
-        return MathComponent.Value.BigIntValue.zero();
+        return MathComponent.Value.LongValue.zero();
     }
 
     public static MathComponent.Value one() {
-        return MathComponent.Value.BigIntValue.one();
+        return MathComponent.Value.LongValue.one();
     }
 
+    // reduced fraction, or an integer when the denominator divides the numerator
     public static MathComponent.Value ratio(MathComponent.Value newNumerator, MathComponent.Value newDenominator) {
-        if (newNumerator.isZero())
-            return MathComponent.Value.BigIntValue.zero();
-        if (newNumerator.compareTo(newDenominator) == 0)
-            return MathComponent.Value.BigIntValue.one();
-        if (newDenominator.equalsConstant(OptimizationConstant.ONE))
-            return newNumerator;
-
-        var divisor = GreatestCommonDivisorFunction.greatestCommonDivisor(newNumerator, newDenominator);
-        if (!divisor.equalsConstant(OptimizationConstant.ONE))
-            return new MathComponent.Value.RatioValue(
-                    MathUtils.divide(newNumerator, divisor),
-                    MathUtils.divide(newDenominator, divisor)
-            );
-
-        return new MathComponent.Value.RatioValue(
-                newNumerator,
-                newDenominator
-        );
+        return Rational.of(newNumerator, newDenominator);
     }
 
     public static MathComponent.Value toValue(BigDecimal value) {
         return new MathComponent.Value.BigDecimalValue(value);
     }
 
+    // exact values are always finite, see EvaluationMode
     public static MathComponent.Value toValue(double value) {
+        if (!Double.isFinite(value))
+            throw new ArithmeticException("Not a finite number: " + value);
         return toValue(new BigDecimal(String.valueOf(value)));
     }
 
     public static MathComponent.Value toValue(long value) {
-        return new MathComponent.Value.BigIntValue(new BigInteger(String.valueOf(value)));
+        return MathComponent.Value.LongValue.valueOf(value);
     }
 
     public static MathComponent.Value toValue(String value) {
@@ -52,6 +37,9 @@ public interface ValueFactory {
     }
 
     public static MathComponent.Value toValue(BigInteger value) {
+        if (value.bitLength() < Long.SIZE)
+            return MathComponent.Value.LongValue.valueOf(value.longValue());
+
         return new MathComponent.Value.BigIntValue(value);
     }
 }
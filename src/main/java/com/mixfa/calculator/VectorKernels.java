@@ -0,0 +1,56 @@
+package com.mixfa.calculator;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+import java.util.function.DoubleBinaryOperator;
+
+// only loaded when jdk.incubator.vector is in the boot layer, see BatchKernels.available()
+final class VectorKernels implements BatchKernels {
+    private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+
+    private VectorKernels() {
+    }
+
+    static BatchKernels create() {
+        return SPECIES.length() > 1 ? new VectorKernels() : new ScalarKernels();
+    }
+
+    private static void lanewise(VectorOperators.Binary operator, DoubleBinaryOperator scalar, double[] a, double[] b, int length) {
+        var i = 0;
+        var bound = SPECIES.loopBound(length);
+        for (; i < bound; i += SPECIES.length())
+            DoubleVector.fromArray(SPECIES, a, i)
+                    .lanewise(operator, DoubleVector.fromArray(SPECIES, b, i))
+                    .intoArray(a, i);
+
+        for (; i < length; i++)
+            a[i] = scalar.applyAsDouble(a[i], b[i]);
+    }
+
+    @Override
+    public void add(double[] a, double[] b, int length) {
+        lanewise(VectorOperators.ADD, Double::sum, a, b, length);
+    }
+
+    @Override
+    public void subtract(double[] a, double[] b, int length) {
+        lanewise(VectorOperators.SUB, (x, y) -> x - y, a, b, length);
+    }
+
+    @Override
+    public void multiply(double[] a, double[] b, int length) {
+        lanewise(VectorOperators.MUL, (x, y) -> x * y, a, b, length);
+    }
+
+    @Override
+    public void divide(double[] a, double[] b, int length) {
+        lanewise(VectorOperators.DIV, (x, y) -> x / y, a, b, length);
+    }
+
+    @Override
+    public void power(double[] a, double[] b, int length) {
+        lanewise(VectorOperators.POW, Math::pow, a, b, length);
+    }
+}
@@ -2,7 +2,7 @@ package com.mixfa.calculator.functions;
 
 import com.mixfa.calculator.FunctionComponent;
 import com.mixfa.calculator.MathComponent;
-import com.mixfa.calculator.MathComponent.Value.BigIntValue;
+import com.mixfa.calculator.MathComponent.Value.LongValue;
 import com.mixfa.calculator.ValueFactory;
 
 import java.math.BigDecimal;
@@ -11,31 +11,60 @@ import java.util.function.Supplier;
 
 public class GreatestCommonDivisorFunction {
     private static final Supplier<FunctionComponent.FunctionComponent2> FUNCTION = StableValue.supplier(
-            () -> new FunctionComponent.FunctionComponent2("gcd", GreatestCommonDivisorFunction::greatestCommonDivisor)
+            () -> new FunctionComponent.FunctionComponent2("gcd", GreatestCommonDivisorFunction::greatestCommonDivisor, GreatestCommonDivisorFunction::findGCD, true)
     );
 
     public static FunctionComponent.FunctionComponent2 greatestCommonDivisor() {
         return FUNCTION.get();
     }
 
-    public static BigInteger findGCDRecursive(BigInteger a, BigInteger b) {
-        if (b.compareTo(BigInteger.ZERO) == 0) return a;
+    public static double findGCD(double a, double b) {
+        while (b != 0) {
+            var remainder = a % b;
+            a = b;
+            b = remainder;
+        }
+        return Math.abs(a);
+    }
 
-        return findGCDRecursive(b, a.remainder(b));
+    public static long findGCD(long a, long b) {
+        while (b != 0) {
+            var remainder = a % b;
+            a = b;
+            b = remainder;
+        }
+        return a;
     }
 
-    public static BigDecimal findGCDRecursive(BigDecimal a, BigDecimal b) {
-        if (b.compareTo(BigDecimal.ZERO) == 0) return a;
+    // Euclid's loop, consecutive Fibonacci numbers take one step per digit so it must not recurse
+    public static BigInteger findGCD(BigInteger a, BigInteger b) {
+        while (b.signum() != 0) {
+            var remainder = a.remainder(b);
+            a = b;
+            b = remainder;
+        }
+        return a;
+    }
 
-        return findGCDRecursive(b, a.remainder(b));
+    public static BigDecimal findGCD(BigDecimal a, BigDecimal b) {
+        while (b.signum() != 0) {
+            var remainder = a.remainder(b);
+            a = b;
+            b = remainder;
+        }
+        return a;
     }
 
     public static MathComponent.Value greatestCommonDivisor(MathComponent.Value a, MathComponent.Value b) {
         if (b.isZero()) return a;
 
-        if (a instanceof BigIntValue && b instanceof BigIntValue)
-            return ValueFactory.toValue(findGCDRecursive(b.asBigInteger(), a.asBigInteger()));
+        // Long.MIN_VALUE has no positive long counterpart, leave it to BigInteger
+        if (a instanceof LongValue(long x) && b instanceof LongValue(long y) && x != Long.MIN_VALUE && y != Long.MIN_VALUE)
+            return ValueFactory.toValue(findGCD(y, x));
+
+        if (a.isInteger() && b.isInteger())
+            return ValueFactory.toValue(findGCD(b.asBigInteger(), a.asBigInteger()));
 
-        return ValueFactory.toValue(findGCDRecursive(a.asBigDecimal(), b.asBigDecimal()));
+        return ValueFactory.toValue(findGCD(a.asBigDecimal(), b.asBigDecimal()));
     }
 }
@@ -2,6 +2,7 @@ package com.mixfa.calculator.functions;
 
 import com.mixfa.calculator.FunctionComponent;
 import com.mixfa.calculator.MathComponent;
+import com.mixfa.calculator.ValueFactory;
 
 import java.math.BigDecimal;
 import java.math.BigInteger;
@@ -11,32 +12,39 @@ import static com.mixfa.calculator.ValueFactory.toValue;
 
 public class LowestCommonMultipleFunction {
     private static final Supplier<FunctionComponent.FunctionComponent2> FUNCTION = StableValue.supplier(
-            () -> new FunctionComponent.FunctionComponent2("lcm", LowestCommonMultipleFunction::lowestCommonMultiple)
+            () -> new FunctionComponent.FunctionComponent2("lcm", LowestCommonMultipleFunction::lowestCommonMultiple, LowestCommonMultipleFunction::findLCM, true)
     );
 
     public static FunctionComponent.FunctionComponent2 lowestCommonMultiple() {
         return FUNCTION.get();
     }
 
+    public static double findLCM(double a, double b) {
+        if (a == 0 || b == 0)
+            return 0;
+
+        return Math.abs(a * b) / GreatestCommonDivisorFunction.findGCD(a, b);
+    }
+
     public static MathComponent.Value findLCM(BigInteger a, BigInteger b) {
         if (a.compareTo(BigInteger.ZERO) == 0 || b.compareTo(BigInteger.ZERO) == 0)
-            return MathComponent.Value.BigIntValue.zero();
+            return ValueFactory.zero();
 
-        return toValue(a.multiply(b).abs().divide(GreatestCommonDivisorFunction.findGCDRecursive(a, b)));
+        return toValue(a.multiply(b).abs().divide(GreatestCommonDivisorFunction.findGCD(a, b)));
     }
 
     public static MathComponent.Value findLCM(BigDecimal a, BigDecimal b) {
         if (a.compareTo(BigDecimal.ZERO) == 0 || b.compareTo(BigDecimal.ZERO) == 0)
-            return MathComponent.Value.BigIntValue.zero();
+            return ValueFactory.zero();
 
-        return toValue(a.multiply(b).abs().divide(GreatestCommonDivisorFunction.findGCDRecursive(a, b)));
+        return toValue(a.multiply(b).abs().divide(GreatestCommonDivisorFunction.findGCD(a, b)));
     }
 
     public static MathComponent.Value lowestCommonMultiple(MathComponent.Value a, MathComponent.Value b) {
         if (a.isZero() || b.isZero())
-            return MathComponent.Value.BigIntValue.zero();
+            return ValueFactory.zero();
 
-        if (a instanceof MathComponent.Value.BigIntValue && b instanceof MathComponent.Value.BigIntValue)
+        if (a.isInteger() && b.isInteger())
             return findLCM(a.asBigInteger(), b.asBigInteger());
 
         return findLCM(a.asBigDecimal(), b.asBigDecimal());
@@ -0,0 +1,289 @@
+package com.mixfa.server;
+
+import com.mixfa.calculator.BoundedCache;
+import com.mixfa.calculator.CompiledExpression;
+import com.mixfa.calculator.EvaluationResult;
+import com.mixfa.calculator.MathComponent.Value;
+import com.mixfa.calculator.MathParser;
+import com.mixfa.calculator.ValueFactory;
+import com.mixfa.calculator.exception.MathParsingException;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.LongAdder;
+
+// HTTP front end for a MathParser on the JDK's built-in server, bound to the loopback address only.
+// Every exchange runs on its own virtual thread, compiled expressions are kept in a BoundedCache keyed
+// by expression and variable names, which may be shared between servers. Request bodies, expression
+// lengths, batch sizes and concurrent requests are limited.
+//   POST /eval  {"expression": "x^2+1", "variables": {"x": 3}}          -> {"result": "10"}
+//   POST /batch {"expressions": ["x+1", "1/0"], "variables": {"x": 3}}  -> {"results": [{"result": "4"}, {"error": "..."}]}
+//   GET /metrics                                                         -> counters as plain text
+// Variable values are JSON numbers or decimal strings, results are strings so no digits are lost
+public final class EvaluationServer implements AutoCloseable {
+    public record Limits(int maxRequestBytes, int maxExpressionLength, int maxConcurrentRequests, int maxBatchSize) {
+        public Limits {
+            if (maxRequestBytes < 1 || maxExpressionLength < 1 || maxConcurrentRequests < 1 || maxBatchSize < 1)
+                throw new IllegalArgumentException("Limits must be positive: " + maxRequestBytes + ", " + maxExpressionLength + ", " + maxConcurrentRequests + ", " + maxBatchSize);
+        }
+
+        public static Limits defaults() {
+            return new Limits(64 * 1024, 4096, 4 * Runtime.getRuntime().availableProcessors(), 1000);
+        }
+    }
+
+    // names stay separate from each other and from the expression, so {"a,b": 1} and {"a": 1, "b": 2} never
+    // share an entry. The server passes them sorted, the same set of variables always compiles once
+    public record CacheKey(List<String> variables, String expression) {
+        public CacheKey {
+            variables = List.copyOf(variables);
+        }
+    }
+
+    // status and JSON body of a finished request
+    private record Response(int status, String body) {
+    }
+
+    private static final class RequestException extends Exception {
+        private final int status;
+
+        private RequestException(int status, String message) {
+            super(message);
+            this.status = status;
+        }
+    }
+
+    private final MathParser parser;
+    private final Limits limits;
+    private final BoundedCache<CacheKey, CompiledExpression> cache;
+    private final Semaphore permits;
+    private final HttpServer server;
+    private final ExecutorService executor;
+
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder failedRequests = new LongAdder();
+    private final LongAdder rejectedRequests = new LongAdder();
+    private final LongAdder evaluations = new LongAdder();
+    private final LongAdder failedEvaluations = new LongAdder();
+    private final LongAdder evaluationNanos = new LongAdder();
+
+    private EvaluationServer(MathParser parser, int port, Limits limits, BoundedCache<CacheKey, CompiledExpression> cache) throws IOException {
+        this.parser = parser;
+        this.limits = limits;
+        this.cache = cache;
+        this.permits = new Semaphore(limits.maxConcurrentRequests());
+        this.executor = Executors.newVirtualThreadPerTaskExecutor();
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        server.setExecutor(executor);
+        server.createContext("/eval", exchange -> handle(exchange, this::eval));
+        server.createContext("/batch", exchange -> handle(exchange, this::batch));
+        server.createContext("/metrics", this::metrics);
+        server.start();
+    }
+
+    // port 0 picks a free port, see port()
+    public static EvaluationServer start(MathParser parser, int port) throws IOException {
+        return start(parser, port, Limits.defaults(), new BoundedCache<>(10_000));
+    }
+
+    public static EvaluationServer start(MathParser parser, int port, Limits limits, BoundedCache<CacheKey, CompiledExpression> cache) throws IOException {
+        return new EvaluationServer(parser, port, limits, cache);
+    }
+
+    public int port() {
+        return server.getAddress().getPort();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.close();
+    }
+
+    private interface Endpoint {
+        Response handle(Map<String, Object> request) throws RequestException;
+    }
+
+    private void handle(HttpExchange exchange, Endpoint endpoint) throws IOException {
+        requests.increment();
+        try (exchange) {
+            if (!exchange.getRequestMethod().equals("POST")) {
+                exchange.getResponseHeaders().set("Allow", "POST");
+                send(exchange, reject(405, "Method not allowed"));
+                return;
+            }
+            if (!permits.tryAcquire()) {
+                rejectedRequests.increment();
+                send(exchange, reject(503, "Too many concurrent requests"));
+                return;
+            }
+
+            try {
+                send(exchange, endpoint.handle(read(exchange)));
+            } catch (RequestException e) {
+                if (e.status == 413)
+                    rejectedRequests.increment();
+                send(exchange, reject(e.status, e.getMessage()));
+            } finally {
+                permits.release();
+            }
+        }
+    }
+
+    private Map<String, Object> read(HttpExchange exchange) throws IOException, RequestException {
+        // at most one byte past the limit is read, whatever Content-Length claims
+        var body = exchange.getRequestBody().readNBytes(limits.maxRequestBytes() + 1);
+        if (body.length > limits.maxRequestBytes())
+            throw new RequestException(413, "Request is larger than " + limits.maxRequestBytes() + " bytes");
+
+        try {
+            if (Json.parse(new String(body, StandardCharsets.UTF_8)) instanceof Map<?, ?> map) {
+                @SuppressWarnings("unchecked")
+                var request = (Map<String, Object>) map;
+                return request;
+            }
+        } catch (IllegalArgumentException e) {
+            throw new RequestException(400, "Invalid JSON: " + e.getMessage());
+        }
+        throw new RequestException(400, "Expected a JSON object");
+    }
+
+    private Response eval(Map<String, Object> request) throws RequestException {
+        if (!(request.get("expression") instanceof String expression))
+            throw new RequestException(400, "Missing \"expression\"");
+        checkLength(expression);
+        var variables = variables(request);
+
+        var result = evaluate(expression, variables);
+        return new Response(result.succeeded() ? 200 : 422, json(result));
+    }
+
+    private Response batch(Map<String, Object> request) throws RequestException {
+        if (!(request.get("expressions") instanceof List<?> expressions))
+            throw new RequestException(400, "Missing \"expressions\"");
+        if (expressions.size() > limits.maxBatchSize())
+            throw new RequestException(413, "Batch is larger than " + limits.maxBatchSize() + " expressions");
+        for (int i = 0; i < expressions.size(); i++) {
+            if (!(expressions.get(i) instanceof String expression))
+                throw new RequestException(400, "Expression " + i + " is not a string");
+            checkLength(expression);
+        }
+        var variables = variables(request);
+
+        var body = new StringBuilder("{\"results\":[");
+        for (int i = 0; i < expressions.size(); i++) {
+            if (i > 0)
+                body.append(',');
+            body.append(json(evaluate((String) expressions.get(i), variables)));
+        }
+        return new Response(200, body.append("]}").toString());
+    }
+
+    private void checkLength(String expression) throws RequestException {
+        if (expression.length() > limits.maxExpressionLength())
+            throw new RequestException(413, "Expression is longer than " + limits.maxExpressionLength() + " characters");
+    }
+
+    // sorted by name, see CacheKey
+    private static TreeMap<String, Value> variables(Map<String, Object> request) throws RequestException {
+        var variables = new TreeMap<String, Value>();
+        switch (request.get("variables")) {
+            case null -> {
+            }
+            case Map<?, ?> map -> {
+                for (var entry : map.entrySet()) {
+                    try {
+                        variables.put((String) entry.getKey(), switch (entry.getValue()) {
+                            case BigDecimal number -> ValueFactory.toValue(number);
+                            case String text -> ValueFactory.toValue(text);
+                            case null, default -> throw new NumberFormatException();
+                        });
+                    } catch (NumberFormatException e) {
+                        throw new RequestException(400, "Variable " + entry.getKey() + " is not a number");
+                    }
+                }
+            }
+            default -> throw new RequestException(400, "\"variables\" must be an object");
+        }
+        return variables;
+    }
+
+    private EvaluationResult evaluate(String expression, TreeMap<String, Value> variables) {
+        var start = System.nanoTime();
+        evaluations.increment();
+        try {
+            var compiled = compile(expression, variables);
+            return new EvaluationResult.Success(compiled.evaluate(variables.values().toArray(Value[]::new)));
+        } catch (MathParsingException | RuntimeException e) {
+            failedEvaluations.increment();
+            return new EvaluationResult.Failure(e);
+        } finally {
+            evaluationNanos.add(System.nanoTime() - start);
+        }
+    }
+
+    private static String json(EvaluationResult result) {
+        return switch (result) {
+            case EvaluationResult.Success(Value value) -> "{\"result\":" + Json.quote(value.toString()) + "}";
+            case EvaluationResult.Failure(Exception error) -> "{\"error\":" + Json.quote(String.valueOf(error.getMessage())) + "}";
+        };
+    }
+
+    private CompiledExpression compile(String expression, TreeMap<String, Value> variables) throws MathParsingException {
+        var key = new CacheKey(List.copyOf(variables.keySet()), expression);
+        var compiled = cache.get(key);
+        if (compiled == null) {
+            compiled = parser.compile(expression, variables.keySet().toArray(String[]::new));
+            cache.put(key, compiled);
+        }
+        return compiled;
+    }
+
+    private Response reject(int status, String message) {
+        failedRequests.increment();
+        return new Response(status, "{\"error\":" + Json.quote(message) + "}");
+    }
+
+    private static void send(HttpExchange exchange, Response response) throws IOException {
+        var body = response.body().getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(response.status(), body.length);
+        exchange.getResponseBody().write(body);
+    }
+
+    // Prometheus text format, not limited by the concurrency permits so it stays available under load
+    private void metrics(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            var stats = cache.stats();
+            var lines = new ArrayList<String>();
+            lines.add("calculator_requests_total " + requests.sum());
+            lines.add("calculator_requests_failed_total " + failedRequests.sum());
+            lines.add("calculator_requests_rejected_total " + rejectedRequests.sum());
+            lines.add("calculator_requests_in_flight " + (limits.maxConcurrentRequests() - permits.availablePermits()));
+            lines.add("calculator_evaluations_total " + evaluations.sum());
+            lines.add("calculator_evaluations_failed_total " + failedEvaluations.sum());
+            lines.add("calculator_evaluation_seconds_total " + evaluationNanos.sum() / 1e9);
+            lines.add("calculator_cache_hits_total " + stats.hits());
+            lines.add("calculator_cache_misses_total " + stats.misses());
+            lines.add("calculator_cache_evictions_total " + stats.evictions());
+            lines.add("calculator_cache_size " + stats.size());
+
+            var body = (String.join("\n", lines) + "\n").getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+            exchange.sendResponseHeaders(200, body.length);
+            exchange.getResponseBody().write(body);
+        }
+    }
+}
@@ -0,0 +1,192 @@
+package com.mixfa.server;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// just enough JSON for the requests and responses of the server, so the module needs no dependencies.
+// Objects become LinkedHashMap, arrays ArrayList, numbers BigDecimal so no digits are lost
+final class Json {
+    // deeper input is rejected instead of overflowing the stack
+    private static final int MAX_DEPTH = 64;
+
+    private final String text;
+    private int position;
+
+    private Json(String text) {
+        this.text = text;
+    }
+
+    static Object parse(String text) {
+        var json = new Json(text);
+        var value = json.value(0);
+        json.skipWhitespace();
+        if (json.position != text.length())
+            throw json.error("Unexpected trailing content");
+        return value;
+    }
+
+    private Object value(int depth) {
+        if (depth == MAX_DEPTH)
+            throw error("Nesting is too deep");
+
+        skipWhitespace();
+        if (position == text.length())
+            throw error("Unexpected end of input");
+
+        return switch (text.charAt(position)) {
+            case '{' -> object(depth);
+            case '[' -> array(depth);
+            case '"' -> string();
+            case 't' -> literal("true", Boolean.TRUE);
+            case 'f' -> literal("false", Boolean.FALSE);
+            case 'n' -> literal("null", null);
+            default -> number();
+        };
+    }
+
+    private Map<String, Object> object(int depth) {
+        var object = new LinkedHashMap<String, Object>();
+        ++position;
+        skipWhitespace();
+        if (consume('}'))
+            return object;
+
+        do {
+            skipWhitespace();
+            if (position == text.length() || text.charAt(position) != '"')
+                throw error("Expected a key");
+            var key = string();
+            skipWhitespace();
+            expect(':');
+            object.put(key, value(depth + 1));
+            skipWhitespace();
+        } while (consume(','));
+        expect('}');
+        return object;
+    }
+
+    private List<Object> array(int depth) {
+        var array = new ArrayList<>();
+        ++position;
+        skipWhitespace();
+        if (consume(']'))
+            return array;
+
+        do {
+            array.add(value(depth + 1));
+            skipWhitespace();
+        } while (consume(','));
+        expect(']');
+        return array;
+    }
+
+    private String string() {
+        ++position;
+        var builder = new StringBuilder();
+        while (position < text.length()) {
+            var c = text.charAt(position++);
+            if (c == '"')
+                return builder.toString();
+            if (c != '\\') {
+                builder.append(c);
+                continue;
+            }
+
+            if (position == text.length())
+                break;
+            switch (text.charAt(position++)) {
+                case '"' -> builder.append('"');
+                case '\\' -> builder.append('\\');
+                case '/' -> builder.append('/');
+                case 'b' -> builder.append('\b');
+                case 'f' -> builder.append('\f');
+                case 'n' -> builder.append('\n');
+                case 'r' -> builder.append('\r');
+                case 't' -> builder.append('\t');
+                case 'u' -> {
+                    if (position + 4 > text.length())
+                        throw error("Truncated escape");
+                    // exactly four hex digits, parseInt would also take a sign
+                    var code = 0;
+                    for (int end = position + 4; position < end; position++) {
+                        var digit = Character.digit(text.charAt(position), 16);
+                        if (digit < 0)
+                            throw error("Invalid escape");
+                        code = code * 16 + digit;
+                    }
+                    builder.append((char) code);
+                }
+                default -> throw error("Invalid escape");
+            }
+        }
+        throw error("Unterminated string");
+    }
+
+    private BigDecimal number() {
+        var start = position;
+        while (position < text.length() && "+-0123456789.eE".indexOf(text.charAt(position)) != -1)
+            ++position;
+        if (start == position)
+            throw error("Unexpected character '" + text.charAt(position) + "'");
+
+        try {
+            return new BigDecimal(text.substring(start, position));
+        } catch (NumberFormatException e) {
+            position = start;
+            throw error("Invalid number");
+        }
+    }
+
+    private Object literal(String literal, Object value) {
+        if (!text.startsWith(literal, position))
+            throw error("Unexpected character '" + text.charAt(position) + "'");
+        position += literal.length();
+        return value;
+    }
+
+    private void skipWhitespace() {
+        while (position < text.length() && Character.isWhitespace(text.charAt(position)))
+            ++position;
+    }
+
+    private boolean consume(char c) {
+        if (position < text.length() && text.charAt(position) == c) {
+            ++position;
+            return true;
+        }
+        return false;
+    }
+
+    private void expect(char c) {
+        if (!consume(c))
+            throw error("Expected '" + c + "'");
+    }
+
+    private IllegalArgumentException error(String message) {
+        return new IllegalArgumentException(message + " at " + position);
+    }
+
+    static String quote(String value) {
+        var builder = new StringBuilder(value.length() + 2).append('"');
+        for (int i = 0; i < value.length(); i++) {
+            var c = value.charAt(i);
+            switch (c) {
+                case '"' -> builder.append("\\\"");
+                case '\\' -> builder.append("\\\\");
+                case '\n' -> builder.append("\\n");
+                case '\r' -> builder.append("\\r");
+                case '\t' -> builder.append("\\t");
+                default -> {
+                    if (c < 0x20)
+                        builder.append("\\u%04x".formatted((int) c));
+                    else
+                        builder.append(c);
+                }
+            }
+        }
+        return builder.append('"').toString();
+    }
+}
@@ -0,0 +1,52 @@
+import com.mixfa.calculator.EvaluationMode;
+import com.mixfa.calculator.MathParser;
+import com.mixfa.calculator.exception.MathParsingException;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+public class BatchEvaluationTest {
+    @Test
+    public void test() throws MathParsingException {
+        var random = new Random(42);
+        var rows = 10_000 + 7;
+        var columns = new double[2][rows];
+        for (int i = 0; i < rows; i++) {
+            columns[0][i] = random.nextDouble() * 100;
+            columns[1][i] = random.nextDouble() * 10 + 0.5;
+        }
+
+        var parser = MathParser.defaultParser();
+        for (String input : new String[]{"x^2+3*x-y", "sin(x)*cos(y)+sqrt(x)", "pow(x, 0.5)/y-lcm(4, 6)", "(x-y)^y", "2"}) {
+            var expression = parser.compile(input, EvaluationMode.DOUBLE, "x", "y");
+            var out = new double[rows];
+            expression.evaluate(columns, out);
+
+            // vector pow and the transcendental functions may differ from Math in the last bits
+            for (int i = 0; i < rows; i += 97) {
+                var expected = expression.evaluateDouble(columns[0][i], columns[1][i]);
+                if (Double.isNaN(expected))
+                    Assertions.assertTrue(Double.isNaN(out[i]), input);
+                else
+                    Assertions.assertEquals(expected, out[i], Math.max(1, Math.abs(expected)) * 1e-12, input);
+            }
+
+            var check = expression.checkBatch(columns, out, 1e-9);
+            Assertions.assertTrue(check.matches(), input + " " + check);
+        }
+
+        var exact = parser.compile("x*y", "x", "y");
+        var out = new double[rows];
+        exact.evaluate(columns, out);
+        Assertions.assertEquals(columns[0][5] * columns[1][5], out[5], 1e-9);
+
+        // a column shorter than the output is rejected in both modes, before anything is written
+        var shortColumns = new double[][]{columns[0], new double[rows - 1]};
+        for (var mode : EvaluationMode.values()) {
+            var expression = parser.compile("x*y", mode, "x", "y");
+            Assertions.assertThrows(IllegalArgumentException.class, () -> expression.evaluate(shortColumns, new double[rows]), mode.name());
+            Assertions.assertThrows(IllegalArgumentException.class, () -> expression.checkBatch(shortColumns, new double[rows], 1e-9), mode.name());
+        }
+    }
+}
@@ -0,0 +1,60 @@
+import com.mixfa.calculator.EvaluationMode;
+import com.mixfa.calculator.FunctionComponent;
+import com.mixfa.calculator.MathComponent;
+import com.mixfa.calculator.MathParser;
+import com.mixfa.calculator.MathParserBuilder;
+import com.mixfa.calculator.ValueFactory;
+import com.mixfa.calculator.exception.MathParsingException;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+public class BytecodeCompilerTest {
+    private static final String[] INPUTS = {
+            "x^2+3*x-y", "sin(x)^2+cos(y)^2", "sqrt(x*x)/(1+y)", "pow(x, 0.5)-y^3",
+            "gcd(12, 18)*x-pi", "(1/3)*x+sum(x, y, 2)", "half(x)-y"
+    };
+
+    private static MathParserBuilder builder() {
+        return new MathParserBuilder()
+                .addDefaults()
+                .addFunction(new FunctionComponent.FunctionComponentMulti("sum", args -> Arrays.stream(args)
+                        .reduce(ValueFactory.zero(), (a, b) -> (MathComponent.Value) MathComponent.AnyOperation.add(a, b).calculate())))
+                .addFunction(new FunctionComponent.FunctionComponent1("half", arg -> MathComponent.AnyOperation.divide(arg, ValueFactory.toValue(2)).calculate()));
+    }
+
+    @Test
+    public void test() throws MathParsingException {
+        var interpreted = builder().build();
+        var compiled = builder().withBytecodeCompilation(true).build();
+
+        for (String input : INPUTS) {
+            var exact = interpreted.compile(input, "x", "y");
+            var exactCompiled = compiled.compile(input, "x", "y");
+            var fast = interpreted.compile(input, EvaluationMode.DOUBLE, "x", "y");
+            var fastCompiled = compiled.compile(input, EvaluationMode.DOUBLE, "x", "y");
+
+            for (int x = 1; x < 6; x++) {
+                var xValue = ValueFactory.toValue(x);
+                var yValue = ValueFactory.toValue(x + 0.5);
+
+                Assertions.assertEquals(exact.evaluate(xValue, yValue), exactCompiled.evaluate(xValue, yValue), input);
+                Assertions.assertEquals(fast.evaluateDouble(x, x + 0.5), fastCompiled.evaluateDouble(x, x + 0.5), input);
+            }
+        }
+    }
+
+    @Test
+    public void testLargeExpression() throws MathParsingException {
+        // a left-deep chain, deeper than MAX_DEPTH and larger than MAX_NODES of the bytecode backend and
+        // deeper than the closures of DoubleCompiler, both fall back to the postfix program
+        var input = "x" + "+x".repeat(2_499);
+
+        for (var parser : new MathParser[]{builder().withBytecodeCompilation(true).build(), builder().build()}) {
+            Assertions.assertEquals(2_500 * 1.5, parser.compile(input, EvaluationMode.DOUBLE, "x").evaluateDouble(1.5));
+            Assertions.assertEquals(ValueFactory.toValue(2_500), parser.compile(input, "x").evaluate(ValueFactory.one()));
+        }
+        Assertions.assertEquals(100, MathParser.defaultParser().compile("x" + "+x".repeat(99), "x").evaluate(ValueFactory.one()).asBigInteger().intValue());
+    }
+}
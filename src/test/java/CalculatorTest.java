@@ -1,3 +1,4 @@
+import ch.obermuhlner.math.big.BigDecimalMath;
 import com.mixfa.calculator.MathParser;
 import com.mixfa.calculator.ValueFactory;
 import com.mixfa.calculator.exception.MathParsingException;
@@ -5,6 +6,7 @@ import org.junit.jupiter.api.Test;
 
 import java.math.BigDecimal;
 import java.math.BigInteger;
+import java.math.MathContext;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 
@@ -34,7 +36,7 @@ public class CalculatorTest {
                 parser.parseInput("2+2*2+2").calculate().asBigDecimal()
         );
         assertEquals(
-                new BigDecimal(String.valueOf(Math.PI)),
+                BigDecimalMath.pi(MathContext.DECIMAL128),
                 parser.parseInput("pi").calculate().asBigDecimal()
         );
 
@@ -0,0 +1,82 @@
+import com.mixfa.calculator.EvaluationMode;
+import com.mixfa.calculator.FunctionComponent;
+import com.mixfa.calculator.MathParser;
+import com.mixfa.calculator.MathParserBuilder;
+import com.mixfa.calculator.ValueFactory;
+import com.mixfa.calculator.exception.MathParsingException;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class CommonSubexpressionTest {
+    @Test
+    public void test() throws MathParsingException {
+        var pureCalls = new AtomicInteger();
+        var impureCalls = new AtomicInteger();
+
+        for (boolean bytecode : new boolean[]{false, true}) {
+            var parser = new MathParserBuilder()
+                    .addDefaults()
+                    .addFunction(new FunctionComponent.FunctionComponent1("g", arg -> {
+                        pureCalls.incrementAndGet();
+                        return arg;
+                    }, x -> {
+                        pureCalls.incrementAndGet();
+                        return x;
+                    }, true))
+                    .addFunction(new FunctionComponent.FunctionComponent0("r", () -> ValueFactory.toValue(impureCalls.incrementAndGet())))
+                    .withCommonSubexpressionElimination(true)
+                    .withBytecodeCompilation(bytecode)
+                    .build();
+
+            var repeated = String.join("+", Collections.nCopies(20, "(a*b+c)"));
+            for (var mode : EvaluationMode.values()) {
+                var expression = parser.compile(repeated, mode, "a", "b", "c");
+                // 19 copies of a*b and of +c
+                Assertions.assertEquals(38, expression.eliminatedNodes());
+                Assertions.assertEquals(20 * 7, expression.evaluateDouble(2, 3, 1), 1e-9);
+
+                var out = new double[2];
+                expression.evaluate(new double[][]{{2, 1}, {3, 1}, {1, 0}}, out);
+                Assertions.assertArrayEquals(new double[]{140, 20}, out, 1e-9);
+
+                pureCalls.set(0);
+                var calls = parser.compile("g(a)*g(a)+g(a)", mode, "a");
+                Assertions.assertEquals(12, calls.evaluateDouble(3), 1e-9);
+                Assertions.assertEquals(1, pureCalls.get());
+            }
+
+            impureCalls.set(0);
+            var impure = parser.compile("r()+r()");
+            Assertions.assertEquals(0, impure.eliminatedNodes());
+            Assertions.assertEquals(ValueFactory.toValue(3), impure.evaluate());
+            Assertions.assertEquals(2, impureCalls.get());
+
+            pureCalls.set(0);
+            parser.parseInput("g(r())+g(r())").calculate();
+            Assertions.assertEquals(2, pureCalls.get());
+        }
+    }
+
+    @Test
+    public void testStructuralEquality() throws MathParsingException {
+        var parser = MathParser.defaultParser();
+        var a = parser.compile("x*(y+1)-sqrt(x)", "x", "y").root();
+        var b = parser.compile("x*(y+1)-sqrt(x)", "x", "y").root();
+        var c = parser.compile("x*(y+2)-sqrt(x)", "x", "y").root();
+
+        Assertions.assertNotSame(a, b);
+        Assertions.assertEquals(a, b);
+        Assertions.assertEquals(a.hashCode(), b.hashCode());
+        Assertions.assertNotEquals(a, c);
+
+        // deep trees are compared without recursion
+        var deep = "x+(".repeat(50_000) + "x" + ")".repeat(50_000);
+        Assertions.assertEquals(parser.compile(deep, "x").root(), parser.compile(deep, "x").root());
+        Assertions.assertEquals(2, new HashSet<>(List.of(a, b, c)).size());
+    }
+}
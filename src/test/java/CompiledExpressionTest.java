@@ -0,0 +1,42 @@
+import com.mixfa.calculator.MathParser;
+import com.mixfa.calculator.ValueFactory;
+import com.mixfa.calculator.exception.MathParsingException;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigInteger;
+import java.util.stream.IntStream;
+
+public class CompiledExpressionTest {
+    @Test
+    public void test() throws MathParsingException {
+        var expression = MathParser.defaultParser().compile("x^2+3*x", "x");
+
+        for (int x = -5; x <= 5; x++) {
+            Assertions.assertEquals(
+                    BigInteger.valueOf((long) x * x + 3L * x),
+                    expression.evaluate(ValueFactory.toValue(x)).asBigInteger()
+            );
+        }
+
+        var expression2 = MathParser.defaultParser().compile("(a-b)/c", "a", "b", "c");
+        var bindings = expression2.bindings()
+                .set("a", ValueFactory.toValue(7))
+                .set("b", ValueFactory.toValue(1))
+                .set("c", ValueFactory.toValue(2));
+        Assertions.assertEquals(BigInteger.valueOf(3), expression2.evaluate(bindings).asBigInteger());
+
+        Assertions.assertThrows(IllegalArgumentException.class, expression2::evaluate);
+        Assertions.assertThrows(MathParsingException.class, () -> MathParser.defaultParser().compile("x+y", "x", "x"));
+    }
+
+    @Test
+    public void testConcurrentEvaluation() throws MathParsingException {
+        var expression = MathParser.defaultParser().compile("x*x-1", "x");
+
+        IntStream.range(0, 10_000).parallel().forEach(x -> Assertions.assertEquals(
+                BigInteger.valueOf((long) x * x - 1),
+                expression.evaluate(ValueFactory.toValue(x)).asBigInteger()
+        ));
+    }
+}
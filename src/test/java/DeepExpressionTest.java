@@ -0,0 +1,82 @@
+import com.mixfa.calculator.EvaluationMode;
+import com.mixfa.calculator.FunctionComponent;
+import com.mixfa.calculator.MathParser;
+import com.mixfa.calculator.MathParserBuilder;
+import com.mixfa.calculator.ValueFactory;
+import com.mixfa.calculator.exception.MathParsingException;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigInteger;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class DeepExpressionTest {
+    private static final int TERMS = 100_000;
+
+    @Test
+    public void test() throws MathParsingException {
+        var parser = new MathParserBuilder()
+                .addDefaults()
+                .addFunction(new FunctionComponent.FunctionComponent0("f", () -> ValueFactory.toValue(2)))
+                .build();
+
+        // long left-leaning chain
+        Assertions.assertEquals(ValueFactory.toValue(2 * (TERMS + 1)), parser.parseInput("f()" + "+f()".repeat(TERMS)).calculate());
+
+        // deep right-leaning nesting
+        var nested = "f()+(".repeat(TERMS) + "f()" + ")".repeat(TERMS);
+        Assertions.assertEquals(ValueFactory.toValue(2 * (TERMS + 1)), parser.parseInput(nested).calculate());
+
+        // x + (x + (... x)) - x - x ... = x
+        var variables = "x+(".repeat(TERMS) + "x" + ")".repeat(TERMS) + "-x".repeat(TERMS);
+        for (var mode : EvaluationMode.values()) {
+            var expression = MathParser.defaultParser().compile(variables, mode, "x");
+            Assertions.assertEquals(0, ValueFactory.toValue(3).compareTo(expression.evaluate(ValueFactory.toValue(3))));
+            Assertions.assertEquals(-1.5, expression.evaluateDouble(-1.5), 1e-9);
+
+            var out = new double[3];
+            expression.evaluate(new double[][]{{1, -2, 0.5}}, out);
+            Assertions.assertArrayEquals(new double[]{1, -2, 0.5}, out, 1e-9);
+        }
+    }
+
+    @Test
+    public void testGcdOfFibonacciNumbers() throws MathParsingException {
+        var a = BigInteger.ZERO;
+        var b = BigInteger.ONE;
+        for (int i = 0; i < 50_000; i++) {
+            var next = a.add(b);
+            a = b;
+            b = next;
+        }
+
+        var gcd = MathParser.defaultParser().parseInput("gcd(" + b + ", " + a + ")").calculate();
+        Assertions.assertEquals(ValueFactory.one(), gcd);
+    }
+
+    @Test
+    public void testEvaluationOrder() throws MathParsingException {
+        // the right operand needs more stack, impure calls still run left to right
+        var counter = new AtomicInteger();
+        var parser = new MathParserBuilder()
+                .addDefaults()
+                .addFunction(new FunctionComponent.FunctionComponent0("next", () -> ValueFactory.toValue(counter.incrementAndGet())))
+                .addFunction(new FunctionComponent.FunctionComponent0("left", () -> {
+                    throw new IllegalStateException("left");
+                }))
+                .addFunction(new FunctionComponent.FunctionComponent0("right", () -> {
+                    throw new IllegalArgumentException("right");
+                }))
+                .build();
+
+        // 1 - 2 * (3 + 1), evaluated right first it would be 3 - 1 * (2 + 1)
+        Assertions.assertEquals(ValueFactory.toValue(-7), parser.parseInput("next() - next() * (next() + 1)").calculate());
+        for (var mode : EvaluationMode.values()) {
+            counter.set(0);
+            var expression = parser.compile("next() - next() * (next() + x)", mode, "x");
+            Assertions.assertEquals(-7, expression.evaluateDouble(1));
+        }
+
+        Assertions.assertThrows(IllegalStateException.class, () -> parser.parseInput("left() + right() * (right() + 1)").calculate());
+    }
+}
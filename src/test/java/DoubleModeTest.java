@@ -0,0 +1,73 @@
+import com.mixfa.calculator.EvaluationMode;
+import com.mixfa.calculator.MathParser;
+import com.mixfa.calculator.ValueFactory;
+import com.mixfa.calculator.exception.MathParsingException;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+public class DoubleModeTest {
+    @Test
+    public void test() throws MathParsingException {
+        var parser = MathParser.defaultParser();
+        var inputs = new String[]{"x^2+3*x", "sin(x)^2+cos(x)^2", "sqrt(x*x)/(1+x)", "pow(x, 0.5)-x^3", "gcd(12, 18)*x-pi", "(1/3)*x"};
+
+        for (String input : inputs) {
+            var exact = parser.compile(input, "x");
+            var fast = parser.compile(input, EvaluationMode.DOUBLE, "x");
+
+            for (double x = 0.5; x < 10; x += 0.75) {
+                var expected = exact.evaluate(ValueFactory.toValue(x)).asBigDecimal().doubleValue();
+                Assertions.assertEquals(expected, fast.evaluateDouble(x), Math.abs(expected) * 1e-12, input);
+                Assertions.assertEquals(expected, exact.evaluateDouble(x), Math.abs(expected) * 1e-12, input);
+            }
+        }
+
+        Assertions.assertEquals(Double.POSITIVE_INFINITY, parser.compile("1/x", EvaluationMode.DOUBLE, "x").evaluateDouble(0));
+    }
+
+    // see EvaluationMode, IEEE 754 values where a double is returned, ArithmeticException everywhere else
+    @Test
+    public void nonFinite() throws MathParsingException {
+        var parser = MathParser.defaultParser();
+        var zero = ValueFactory.toValue(0);
+
+        var exactDivision = parser.compile("1/x", "x");
+        Assertions.assertThrows(ArithmeticException.class, () -> exactDivision.evaluate(zero));
+        Assertions.assertThrows(ArithmeticException.class, () -> exactDivision.evaluateDouble(0));
+        Assertions.assertThrows(ArithmeticException.class, () -> exactDivision.evaluate(new double[][]{{0}}, new double[1]));
+
+        var division = parser.compile("1/x", EvaluationMode.DOUBLE, "x");
+        var out = new double[2];
+        division.evaluate(new double[][]{{0, -0.0}}, out);
+        Assertions.assertArrayEquals(new double[]{Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY}, out);
+        Assertions.assertThrows(ArithmeticException.class, () -> division.evaluate(zero));
+
+        var overflow = parser.compile("x^400", EvaluationMode.DOUBLE, "x");
+        Assertions.assertEquals(Double.POSITIVE_INFINITY, overflow.evaluateDouble(10));
+        Assertions.assertThrows(ArithmeticException.class, () -> overflow.evaluate(ValueFactory.toValue(10)));
+        // the exact value is representable, only its double conversion overflows
+        Assertions.assertEquals(0, parser.compile("x^400", "x").evaluate(ValueFactory.toValue(10)).asBigDecimal().compareTo(BigDecimal.TEN.pow(400)));
+
+        var undefined = parser.compile("x/x", EvaluationMode.DOUBLE, "x");
+        Assertions.assertTrue(Double.isNaN(undefined.evaluateDouble(0)));
+        Assertions.assertThrows(ArithmeticException.class, () -> undefined.evaluate(zero));
+        Assertions.assertThrows(ArithmeticException.class, () -> parser.compile("x/x", "x").evaluate(zero));
+
+        // non-finite inputs have no exact value
+        var exactSum = parser.compile("x+1", "x");
+        Assertions.assertThrows(ArithmeticException.class, () -> exactSum.evaluateDouble(Double.NaN));
+        Assertions.assertThrows(ArithmeticException.class, () -> exactSum.evaluate(new double[][]{{1, Double.NaN}}, new double[2]));
+        Assertions.assertThrows(ArithmeticException.class, () -> ValueFactory.toValue(Double.POSITIVE_INFINITY));
+
+        var sum = parser.compile("x+1", EvaluationMode.DOUBLE, "x");
+        Assertions.assertTrue(Double.isNaN(sum.evaluateDouble(Double.NaN)));
+        var columns = new double[][]{{1, Double.NaN, Double.NEGATIVE_INFINITY}};
+        var results = new double[3];
+        sum.evaluate(columns, results);
+        Assertions.assertTrue(sum.checkBatch(columns, results, 1e-12).matches());
+        results[1] = 5;
+        Assertions.assertEquals(1, sum.checkBatch(columns, results, 1e-12).firstMismatch());
+    }
+}
@@ -0,0 +1,81 @@
+import com.mixfa.calculator.EvaluationResult;
+import com.mixfa.calculator.FunctionComponent;
+import com.mixfa.calculator.MathParser;
+import com.mixfa.calculator.MathParserBuilder;
+import com.mixfa.calculator.ValueFactory;
+import com.mixfa.calculator.exception.MathParsingException;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BrokenBarrierException;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+public class EvaluateAllTest {
+    @Test
+    public void test() throws MathParsingException {
+        var parser = MathParser.defaultParser();
+
+        var inputs = new ArrayList<String>();
+        for (int i = 0; i < 5000; i++)
+            inputs.add(i % 1000 == 7 ? "2+*" : i % 1000 == 8 ? "1/0" : i + "*2+1");
+
+        List<EvaluationResult> bounded;
+        try (var executor = Executors.newFixedThreadPool(3)) {
+            bounded = parser.evaluateAll(inputs, executor);
+        }
+
+        for (var results : List.of(parser.evaluateAll(inputs), bounded)) {
+            Assertions.assertEquals(inputs.size(), results.size());
+            for (int i = 0; i < inputs.size(); i++) {
+                var result = results.get(i);
+                switch (i % 1000) {
+                    case 7 -> Assertions.assertInstanceOf(MathParsingException.class, ((EvaluationResult.Failure) result).error());
+                    case 8 -> Assertions.assertInstanceOf(ArithmeticException.class, ((EvaluationResult.Failure) result).error());
+                    default -> Assertions.assertEquals(ValueFactory.toValue(i * 2 + 1), result.value());
+                }
+            }
+        }
+
+        var expressions = List.of(parser.compile("x^2", "x"), parser.compile("x/(x-3)", "x"), parser.compile("x+1", "x"));
+        var results = MathParser.evaluateCompiled(expressions, ValueFactory.toValue(3));
+        Assertions.assertEquals(ValueFactory.toValue(9), results.get(0).value());
+        Assertions.assertFalse(results.get(1).succeeded());
+        Assertions.assertThrows(IllegalStateException.class, () -> results.get(1).value());
+        Assertions.assertEquals(ValueFactory.toValue(4), results.get(2).value());
+    }
+
+    @Test
+    public void testSmallBatches() throws MathParsingException {
+        // every call waits for the other three, so the batch only succeeds when all four run at once
+        var barrier = new CyclicBarrier(4);
+        var parser = new MathParserBuilder()
+                .addDefaults()
+                .addFunction(new FunctionComponent.FunctionComponent1("slow", arg -> {
+                    try {
+                        barrier.await(10, TimeUnit.SECONDS);
+                    } catch (InterruptedException | BrokenBarrierException | TimeoutException e) {
+                        throw new IllegalStateException("Items did not run in parallel", e);
+                    }
+                    return arg;
+                }))
+                .build();
+
+        var results = parser.evaluateAll(List.of("slow(1)", "slow(2)", "slow(3)", "slow(4)"));
+        for (int i = 0; i < results.size(); i++)
+            Assertions.assertEquals(ValueFactory.toValue(i + 1), results.get(i).value());
+
+        // errors are not results, they reach the caller as they are
+        var failing = new MathParserBuilder()
+                .addDefaults()
+                .addFunction(new FunctionComponent.FunctionComponent0("fail", () -> {
+                    throw new StackOverflowError();
+                }))
+                .build();
+        Assertions.assertThrows(StackOverflowError.class, () -> failing.evaluateAll(List.of("1", "fail()")));
+    }
+}
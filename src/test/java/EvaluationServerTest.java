@@ -0,0 +1,68 @@
+import com.mixfa.calculator.BoundedCache;
+import com.mixfa.calculator.CompiledExpression;
+import com.mixfa.calculator.MathParser;
+import com.mixfa.server.EvaluationServer;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+
+public class EvaluationServerTest {
+    @Test
+    public void test() throws IOException, InterruptedException {
+        var cache = new BoundedCache<EvaluationServer.CacheKey, CompiledExpression>(100);
+        var limits = new EvaluationServer.Limits(1024, 100, 4, 3);
+        try (var server = EvaluationServer.start(MathParser.defaultParser(), 0, limits, cache);
+             var client = HttpClient.newHttpClient()) {
+            var base = "http://localhost:" + server.port();
+
+            var eval = post(client, base + "/eval", "{\"expression\": \"x^2+y\", \"variables\": {\"x\": 3, \"y\": \"0.5\"}}");
+            Assertions.assertEquals(200, eval.statusCode());
+            Assertions.assertEquals("{\"result\":\"9.5\"}", eval.body());
+
+            // the same expression and variable names hit the compiled expression cache
+            post(client, base + "/eval", "{\"variables\": {\"y\": 1, \"x\": 2}, \"expression\": \"x^2+y\"}");
+            Assertions.assertEquals(1, cache.stats().hits());
+
+            // variable names are never joined into one string, "a,b" is not the same scope as "a" and "b"
+            Assertions.assertEquals("{\"result\":\"3\"}", post(client, base + "/eval", "{\"expression\": \"a+b\", \"variables\": {\"a\": 1, \"b\": 2}}").body());
+            Assertions.assertEquals(422, post(client, base + "/eval", "{\"expression\": \"a+b\", \"variables\": {\"a,b\": 1}}").statusCode());
+            Assertions.assertEquals(1, cache.stats().hits());
+
+            Assertions.assertEquals(422, post(client, base + "/eval", "{\"expression\": \"1/0\"}").statusCode());
+            Assertions.assertEquals(400, post(client, base + "/eval", "{\"expression\": ").statusCode());
+            Assertions.assertEquals(400, post(client, base + "/eval", "{\"expression\": \"x\", \"variables\": {\"x\": true}}").statusCode());
+            Assertions.assertEquals(400, post(client, base + "/eval", "{\"expression\": \"\\u+031\"}").statusCode());
+            Assertions.assertEquals(400, post(client, base + "/eval", "{\"expression\": \"\\u-031\"}").statusCode());
+            Assertions.assertEquals("{\"result\":\"2\"}", post(client, base + "/eval", "{\"expression\": \"\\u0031+1\"}").body());
+
+            var batch = post(client, base + "/batch", "{\"expressions\": [\"x+1\", \"2+*\", \"\\\"\"], \"variables\": {\"x\": 1}}");
+            Assertions.assertEquals(200, batch.statusCode());
+            Assertions.assertTrue(batch.body().startsWith("{\"results\":[{\"result\":\"2\"},{\"error\":"), batch.body());
+            Assertions.assertEquals(413, post(client, base + "/batch", "{\"expressions\": [\"1\", \"2\", \"3\", \"4\"]}").statusCode());
+            Assertions.assertEquals(413, post(client, base + "/eval", "{\"expression\": \"" + "1+".repeat(1000) + "1\"}").statusCode());
+            // expressions are limited on their own, well below the body limit
+            var tooLong = "1+".repeat(50) + "1";
+            Assertions.assertEquals(413, post(client, base + "/eval", "{\"expression\": \"" + tooLong + "\"}").statusCode());
+            Assertions.assertEquals(413, post(client, base + "/batch", "{\"expressions\": [\"1\", \"" + tooLong + "\"]}").statusCode());
+
+            var get = client.send(HttpRequest.newBuilder(URI.create(base + "/eval")).GET().build(), HttpResponse.BodyHandlers.ofString());
+            Assertions.assertEquals(405, get.statusCode());
+
+            var metrics = client.send(HttpRequest.newBuilder(URI.create(base + "/metrics")).GET().build(), HttpResponse.BodyHandlers.ofString());
+            Assertions.assertEquals(200, metrics.statusCode());
+            Assertions.assertTrue(metrics.body().contains("calculator_requests_total 16\n"), metrics.body());
+            Assertions.assertTrue(metrics.body().contains("calculator_requests_rejected_total 4\n"), metrics.body());
+            Assertions.assertTrue(metrics.body().contains("calculator_cache_hits_total 1\n"), metrics.body());
+        }
+    }
+
+    private static HttpResponse<String> post(HttpClient client, String uri, String body) throws IOException, InterruptedException {
+        var request = HttpRequest.newBuilder(URI.create(uri)).POST(HttpRequest.BodyPublishers.ofString(body)).build();
+        return client.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+}
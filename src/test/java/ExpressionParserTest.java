@@ -0,0 +1,68 @@
+import com.mixfa.calculator.FunctionComponent;
+import com.mixfa.calculator.MathParser;
+import com.mixfa.calculator.MathParserBuilder;
+import com.mixfa.calculator.ValueFactory;
+import com.mixfa.calculator.exception.MathParsingException;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigInteger;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class ExpressionParserTest {
+    private static BigInteger calculate(String input) throws MathParsingException {
+        return MathParser.defaultParser().parseInput(input).calculate().asBigInteger();
+    }
+
+    @Test
+    public void test() throws MathParsingException {
+        Assertions.assertEquals(BigInteger.valueOf(14), calculate("2+3*4"));
+        Assertions.assertEquals(BigInteger.valueOf(20), calculate("(2+3)*4"));
+        Assertions.assertEquals(BigInteger.valueOf(512), calculate("2^3^2"));
+        Assertions.assertEquals(BigInteger.valueOf(-4), calculate("-2^2"));
+        Assertions.assertEquals(BigInteger.valueOf(-6), calculate("2*-3"));
+        Assertions.assertEquals(BigInteger.valueOf(3), calculate("10-4-3"));
+        Assertions.assertEquals(BigInteger.valueOf(4), calculate("pow(gcd(4, 6), 2)"));
+        Assertions.assertEquals(BigInteger.valueOf(30), calculate("lcm(2*3, (10/2))"));
+    }
+
+    @Test
+    public void testDeepAndLongInput() throws MathParsingException {
+        var depth = 5_000;
+        Assertions.assertEquals(BigInteger.ONE, calculate("(".repeat(depth) + "1" + ")".repeat(depth)));
+
+        Assertions.assertDoesNotThrow(() -> MathParser.defaultParser().parseInput("1" + "+1".repeat(10_000)));
+        Assertions.assertEquals(BigInteger.valueOf(500), calculate("1" + "+1".repeat(499)));
+    }
+
+    @Test
+    public void testLazyFunctionCalls() throws MathParsingException {
+        var calls = new AtomicInteger();
+        var parser = new MathParserBuilder()
+                .addDefaults()
+                .addFunction(new FunctionComponent.FunctionComponent1("count", arg -> {
+                    calls.incrementAndGet();
+                    return arg;
+                }))
+                .build();
+
+        var component = parser.parseInput("count(2)*3");
+        Assertions.assertEquals(0, calls.get());
+        Assertions.assertEquals(BigInteger.valueOf(6), component.calculate().asBigInteger());
+        Assertions.assertEquals(1, calls.get());
+
+        var expression = parser.compile("pow(x, 2) + gcd(x, 6)", "x");
+        Assertions.assertEquals(BigInteger.valueOf(18), expression.evaluate(ValueFactory.toValue(4)).asBigInteger());
+    }
+
+    @Test
+    public void testErrors() {
+        var parser = MathParser.defaultParser();
+        Assertions.assertThrows(MathParsingException.class, () -> parser.parseInput("(1+2"));
+        Assertions.assertThrows(MathParsingException.class, () -> parser.parseInput("1+2)"));
+        Assertions.assertThrows(MathParsingException.class, () -> parser.parseInput("1+"));
+        Assertions.assertThrows(MathParsingException.class, () -> parser.parseInput("gcd(1)"));
+        Assertions.assertThrows(MathParsingException.class, () -> parser.parseInput("unknown(1)"));
+        Assertions.assertThrows(MathParsingException.class, () -> parser.parseInput("1,2"));
+    }
+}
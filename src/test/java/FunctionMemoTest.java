@@ -0,0 +1,76 @@
+import com.mixfa.calculator.EvaluationMode;
+import com.mixfa.calculator.FunctionComponent;
+import com.mixfa.calculator.FunctionMemo;
+import com.mixfa.calculator.MathParserBuilder;
+import com.mixfa.calculator.ValueFactory;
+import com.mixfa.calculator.exception.MathParsingException;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class FunctionMemoTest {
+    @Test
+    public void test() throws MathParsingException {
+        var pureCalls = new AtomicInteger();
+        var impureCalls = new AtomicInteger();
+        var memo = new FunctionMemo(100);
+        var parser = new MathParserBuilder()
+                .addDefaults()
+                .addFunction(new FunctionComponent.FunctionComponent1("square", arg -> {
+                    pureCalls.incrementAndGet();
+                    return ValueFactory.toValue(arg.asBigInteger().pow(2));
+                }, null, true))
+                .addFunction(new FunctionComponent.FunctionComponent0("tick", () -> ValueFactory.toValue(impureCalls.incrementAndGet())))
+                .withFunctionMemo(memo)
+                .build();
+
+        for (int i = 0; i < 5; i++) {
+            Assertions.assertEquals(ValueFactory.toValue(18), parser.parseInput("square(3)+square(3)").calculate());
+            parser.parseInput("tick()").calculate();
+        }
+        Assertions.assertEquals(1, pureCalls.get());
+        Assertions.assertEquals(5, impureCalls.get());
+
+        var stats = memo.functionStats().get("square");
+        Assertions.assertEquals(9, stats.hits());
+        Assertions.assertEquals(1, stats.misses());
+        Assertions.assertNull(memo.functionStats().get("tick"));
+
+        // compiled expressions and a second parser share the table
+        for (boolean bytecode : new boolean[]{false, true}) {
+            var other = new MathParserBuilder()
+                    .addDefaults()
+                    .withFunctionMemo(memo)
+                    .withBytecodeCompilation(bytecode)
+                    .build();
+            var expression = other.compile("sqrt(x)+sqrt(x)", EvaluationMode.EXACT, "x");
+            expression.evaluate(ValueFactory.toValue(2));
+            expression.evaluate(ValueFactory.toValue(2));
+        }
+        Assertions.assertEquals(1, memo.functionStats().get("sqrt").misses());
+        Assertions.assertEquals(7, memo.functionStats().get("sqrt").hits());
+
+        var small = new FunctionMemo(2);
+        var evicting = new MathParserBuilder().addDefaults().withFunctionMemo(small).build();
+        for (int i = 0; i < 10; i++)
+            evicting.parseInput("sqrt(" + i + ")").calculate();
+        Assertions.assertEquals(2, small.stats().size());
+        Assertions.assertEquals(8, small.stats().evictions());
+    }
+
+    @Test
+    public void testRebuiltParsers() throws MathParsingException {
+        // defaults without constants take the copying path of the builder on every build
+        var memo = new FunctionMemo(100);
+        for (int i = 0; i < 50; i++) {
+            var parser = new MathParserBuilder().addDefaultFunctions().withFunctionMemo(memo).build();
+            parser.parseInput("sqrt(2)").calculate();
+        }
+
+        Assertions.assertEquals(1, memo.stats().size());
+        Assertions.assertEquals(1, memo.functionStats().get("sqrt").misses());
+        Assertions.assertEquals(49, memo.functionStats().get("sqrt").hits());
+        Assertions.assertEquals(1, memo.functionStats().size());
+    }
+}
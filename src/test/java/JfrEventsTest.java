@@ -0,0 +1,81 @@
+import com.mixfa.calculator.EvaluationMode;
+import com.mixfa.calculator.FunctionComponent;
+import com.mixfa.calculator.MathParserBuilder;
+import com.mixfa.calculator.ValueFactory;
+import com.mixfa.calculator.exception.MathParsingException;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.math.MathContext;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.stream.Collectors;
+
+public class JfrEventsTest {
+    private static final List<String> EVENTS = List.of("Tokenize", "Parse", "Optimize", "Evaluate", "FunctionCall");
+
+    @Test
+    public void test() throws IOException, MathParsingException {
+        var parser = new MathParserBuilder()
+                .addDefaults()
+                .addFunction(new FunctionComponent.FunctionComponent0("tick", ValueFactory::one))
+                .withMathContext(new MathContext(50))
+                .build();
+        var bytecode = new MathParserBuilder().addDefaults().withBytecodeCompilation(true).build();
+        var compiled = bytecode.compile("cos(x)*2", "x");
+        // nothing is recorded, evaluation works as before
+        Assertions.assertEquals(ValueFactory.toValue(3), parser.evaluate(parser.parseInput("1+2")));
+        var cos = compiled.evaluate(ValueFactory.toValue(1));
+
+        var file = Files.createTempFile("calculator", ".jfr");
+        try (var recording = new Recording()) {
+            for (var event : EVENTS)
+                recording.enable("com.mixfa.calculator." + event).withoutThreshold();
+            recording.start();
+
+            parser.evaluate(parser.parseInput("sqrt(2)*0+1"));
+            parser.compile("sin(x)+x*1", "x").evaluate(ValueFactory.toValue(2));
+            parser.parseInput("tick()+1").calculate();
+            var doubles = parser.compile("x*2", EvaluationMode.DOUBLE, "x");
+            doubles.evaluateDouble(3);
+            doubles.evaluate(new double[][]{{1, 2, 3}}, new double[3]);
+            // compiled bytecode switches to the traced path while calls are recorded
+            Assertions.assertEquals(cos, compiled.evaluate(ValueFactory.toValue(1)));
+
+            recording.stop();
+            recording.dump(file);
+
+            var events = RecordingFile.readAllEvents(file).stream()
+                    .collect(Collectors.groupingBy(event -> event.getEventType().getName().substring("com.mixfa.calculator.".length())));
+            Assertions.assertEquals(EVENTS.stream().sorted().toList(), events.keySet().stream().sorted().toList());
+
+            Assertions.assertEquals(4, events.get("Tokenize").size());
+            Assertions.assertEquals(11, events.get("Tokenize").getFirst().getInt("expressionLength"));
+
+            var parse = events.get("Parse").getFirst();
+            Assertions.assertEquals(50, parse.getInt("precision"));
+            Assertions.assertTrue(parse.getInt("nodes") >= 5);
+
+            // sqrt(2)*0+1 folds to a single value
+            var optimize = events.get("Optimize").getFirst();
+            Assertions.assertEquals(1, optimize.getInt("nodesAfter"));
+
+            var evaluate = events.get("Evaluate").stream().map(event -> event.getString("mode")).sorted().toList();
+            Assertions.assertEquals(List.of("DOUBLE", "DOUBLE_BATCH", "EXACT", "EXACT", "EXACT", "EXACT"), evaluate);
+
+            RecordedEvent call = events.get("FunctionCall").stream()
+                    .filter(event -> event.getString("function").equals("sin"))
+                    .findFirst()
+                    .orElseThrow();
+            Assertions.assertEquals(1, call.getInt("arguments"));
+            Assertions.assertEquals("BigDecimalValue", call.getString("resultKind"));
+            Assertions.assertTrue(events.get("FunctionCall").stream().anyMatch(event -> event.getString("function").equals("cos")));
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+}
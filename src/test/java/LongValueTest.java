@@ -0,0 +1,38 @@
+import com.mixfa.calculator.MathComponent;
+import com.mixfa.calculator.MathParser;
+import com.mixfa.calculator.ValueFactory;
+import com.mixfa.calculator.exception.MathParsingException;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+
+public class LongValueTest {
+    @Test
+    public void test() throws MathParsingException {
+        var parser = MathParser.defaultParser();
+
+        Assertions.assertInstanceOf(MathComponent.Value.LongValue.class, parser.parseInput("1+2*3-4").calculate());
+        Assertions.assertEquals(ValueFactory.toValue(3), parser.parseInput("1+2").calculate());
+        Assertions.assertEquals(ValueFactory.toValue(-4), parser.parseInput("12/-3").calculate());
+        Assertions.assertEquals(ValueFactory.toValue(1024), parser.parseInput("2^10").calculate());
+        Assertions.assertEquals(ValueFactory.toValue(6), parser.parseInput("gcd(12,18)").calculate());
+
+        var max = BigInteger.valueOf(Long.MAX_VALUE);
+        var overflow = parser.parseInput(Long.MAX_VALUE + "+1").calculate();
+        Assertions.assertInstanceOf(MathComponent.Value.BigIntValue.class, overflow);
+        Assertions.assertEquals(max.add(BigInteger.ONE), overflow.asBigInteger());
+        Assertions.assertEquals(max.multiply(max), parser.parseInput(Long.MAX_VALUE + "*" + Long.MAX_VALUE).calculate().asBigInteger());
+        Assertions.assertEquals(BigInteger.TWO.pow(100), parser.parseInput("2^100").calculate().asBigInteger());
+        Assertions.assertEquals(BigInteger.valueOf(Long.MIN_VALUE).negate(), parser.parseInput("-(-9223372036854775807-1)").calculate().asBigInteger());
+
+        // results that fit again come back as LongValue
+        Assertions.assertEquals(ValueFactory.toValue(Long.MAX_VALUE), parser.parseInput(Long.MAX_VALUE + "+1-1").calculate());
+        Assertions.assertEquals(ValueFactory.toValue(5), ValueFactory.toValue(BigInteger.valueOf(5)));
+
+        Assertions.assertEquals(new BigDecimal("0.5"), parser.parseInput("2^-1").calculate().asBigDecimal());
+        Assertions.assertTrue(ValueFactory.toValue(2).compareTo(ValueFactory.toValue(new BigDecimal("2.5"))) < 0);
+        Assertions.assertEquals(0, ValueFactory.toValue(2).compareTo(ValueFactory.toValue(BigInteger.TWO)));
+    }
+}
@@ -0,0 +1,47 @@
+import com.mixfa.calculator.MathComponent;
+import com.mixfa.calculator.ValueFactory;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+
+public class MathCompareTest {
+    private static MathComponent.Value ratio(BigInteger numerator, BigInteger denominator) {
+        return ValueFactory.ratio(ValueFactory.toValue(numerator), ValueFactory.toValue(denominator));
+    }
+
+    private static MathComponent.Value ratio(long numerator, long denominator) {
+        return ValueFactory.ratio(ValueFactory.toValue(numerator), ValueFactory.toValue(denominator));
+    }
+
+    @Test
+    public void test() {
+        Assertions.assertTrue(ratio(1, 3).compareTo(ratio(1, 2)) < 0);
+        Assertions.assertTrue(ratio(-1, 3).compareTo(ratio(-1, 2)) > 0);
+        Assertions.assertEquals(0, ratio(1, 4).compareTo(ValueFactory.toValue(new BigDecimal("0.25"))));
+        Assertions.assertTrue(ratio(7, 2).compareTo(ValueFactory.toValue(3)) > 0);
+        Assertions.assertTrue(ValueFactory.toValue(4).compareTo(ratio(7, 2)) > 0);
+        Assertions.assertEquals(0, ValueFactory.toValue(new BigDecimal("2.000")).compareTo(ValueFactory.toValue(2)));
+
+        // products do not fit in a long
+        Assertions.assertTrue(ratio(Long.MAX_VALUE - 1, Long.MAX_VALUE).compareTo(ratio(Long.MAX_VALUE - 2, Long.MAX_VALUE - 1)) > 0);
+
+        // differences beyond 34 significant digits, DECIMAL128 division would call these equal
+        var third = ratio(1, 3);
+        var decimal = ValueFactory.toValue(new BigDecimal("0." + "3".repeat(40)));
+        Assertions.assertTrue(third.compareTo(decimal) > 0);
+        Assertions.assertTrue(decimal.compareTo(third) < 0);
+
+        var big = BigInteger.TEN.pow(40);
+        var a = ratio(big.add(BigInteger.ONE), big);
+        var b = ratio(big.add(BigInteger.TWO), big.add(BigInteger.ONE));
+        Assertions.assertTrue(a.compareTo(b) > 0);
+        Assertions.assertTrue(a.negate().compareTo(b.negate()) < 0);
+        Assertions.assertEquals(0, a.compareTo(ratio(big.add(BigInteger.ONE).multiply(BigInteger.TWO), big.multiply(BigInteger.TWO))));
+
+        var huge = ValueFactory.toValue(BigInteger.TWO.pow(100));
+        Assertions.assertTrue(huge.compareTo(ValueFactory.toValue(Long.MAX_VALUE)) > 0);
+        Assertions.assertTrue(huge.negate().compareTo(ValueFactory.toValue(Long.MIN_VALUE)) < 0);
+    }
+}
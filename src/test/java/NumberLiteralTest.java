@@ -0,0 +1,32 @@
+import com.mixfa.calculator.MathParser;
+import com.mixfa.calculator.ValueFactory;
+import com.mixfa.calculator.exception.MathParsingException;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+
+public class NumberLiteralTest {
+    @Test
+    public void test() throws MathParsingException {
+        var parser = MathParser.defaultParser();
+
+        Assertions.assertSame(ValueFactory.zero(), parser.parseInput("0"));
+        Assertions.assertSame(ValueFactory.zero(), parser.parseInput("0.0"));
+        Assertions.assertSame(ValueFactory.one(), parser.parseInput("1"));
+        Assertions.assertSame(parser.parseInput("10"), parser.parseInput("10"));
+        Assertions.assertSame(ValueFactory.toValue(2), parser.parseInput("002"));
+
+        Assertions.assertEquals(ValueFactory.toValue(123_456_789_012_345_678L), parser.parseInput("123456789012345678"));
+        Assertions.assertEquals(ValueFactory.toValue(Long.MAX_VALUE), parser.parseInput(String.valueOf(Long.MAX_VALUE)));
+        Assertions.assertEquals(ValueFactory.toValue(new BigInteger("123456789012345678901234567890")), parser.parseInput("123456789012345678901234567890"));
+
+        Assertions.assertEquals(ValueFactory.toValue(new BigDecimal("2.50")), parser.parseInput("2.50"));
+        Assertions.assertEquals(ValueFactory.toValue(new BigDecimal(".5")), parser.parseInput(".5"));
+        Assertions.assertEquals(ValueFactory.toValue(new BigDecimal("1.5e3")), parser.parseInput("1.5e3"));
+        Assertions.assertEquals(ValueFactory.toValue(new BigDecimal("25E-2")), parser.parseInput("25E-2"));
+        Assertions.assertEquals(ValueFactory.toValue(new BigDecimal("1234567890.1234567890123")), parser.parseInput("1234567890.1234567890123"));
+        Assertions.assertEquals(ValueFactory.toValue(new BigDecimal("1e-0000000012")), parser.parseInput("1e-0000000012"));
+    }
+}
@@ -0,0 +1,96 @@
+import com.mixfa.calculator.FunctionComponent;
+import com.mixfa.calculator.FunctionMemo;
+import com.mixfa.calculator.MathParser;
+import com.mixfa.calculator.MathParserBuilder;
+import com.mixfa.calculator.ValueFactory;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.math.MathContext;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+
+public class ParallelEvaluationTest {
+    private static MathParser parser(MathContext mathContext, ForkJoinPool pool, Set<Thread> threads) {
+        var builder = new MathParserBuilder()
+                .addDefaults()
+                .addFunction(new FunctionComponent.FunctionComponent1("f", arg -> {
+                    threads.add(Thread.currentThread());
+                    return arg;
+                }, x -> x, true))
+                // impure, so it is not folded away while parsing
+                .addFunction(new FunctionComponent.FunctionComponent1("g", arg -> {
+                    threads.add(Thread.currentThread());
+                    return arg;
+                }))
+                .withMathContext(mathContext);
+        return (pool == null ? builder : builder.withParallelEvaluation(pool)).build();
+    }
+
+    @Test
+    public void test() throws Exception {
+        var pool = new ForkJoinPool(4);
+        try {
+            var threads = ConcurrentHashMap.<Thread>newKeySet();
+            var precise = new MathContext(500);
+            var parallel = parser(precise, pool, threads);
+            var sequential = parser(precise, null, ConcurrentHashMap.newKeySet());
+
+            // every call is a function at 500 digits, well above the threshold
+            var input = "f(x)*sin(x) + f(x+1)*cos(x) + f(x+2)*sqrt(x) + f(x+3)*ln(x)";
+            var value = ValueFactory.toValue(3);
+            Assertions.assertEquals(sequential.compile(input, "x").evaluate(value), parallel.compile(input, "x").evaluate(value));
+            Assertions.assertTrue(threads.stream().anyMatch(thread -> thread.getName().startsWith("ForkJoinPool")));
+
+            // big exact powers are expensive too
+            var powers = "x^20000 * (x+1)^20000 - (x+2)^20000 * (x+3)^20000";
+            Assertions.assertEquals(sequential.compile(powers, "x").evaluate(value), parallel.compile(powers, "x").evaluate(value));
+
+            // errors of a forked subtree reach the caller
+            Assertions.assertThrows(ArithmeticException.class, () -> parallel.compile("sin(x)/(x-3) + cos(x)/(x-3)", "x").evaluate(value));
+
+            // cheap expressions never leave the calling thread
+            threads.clear();
+            var cheap = parser(MathContext.DECIMAL64, pool, threads);
+            Assertions.assertEquals(ValueFactory.toValue(9), cheap.compile("f(x)+f(x+1)+f(x+2)", "x").evaluate(ValueFactory.toValue(2)));
+            Assertions.assertEquals(Set.of(Thread.currentThread()), threads);
+
+            // user functions are cheap unless proven otherwise, even at 500 digits
+            threads.clear();
+            Assertions.assertEquals(ValueFactory.toValue(7), parallel.compile("f(x)+f(x+1)+f(x+2)*f(x+3)", "x").evaluate(ValueFactory.toValue(0)));
+            Assertions.assertEquals(Set.of(Thread.currentThread()), threads);
+
+            // callers inside another pool still fork into the configured one, trees evaluated twice reuse the plan
+            threads.clear();
+            var mixed = "sin(g(3))*g(3) + cos(g(3))*g(4) + sqrt(g(3))*g(5)";
+            var tree = parallel.parseInput(mixed);
+            var other = new ForkJoinPool(2);
+            try {
+                var result = other.submit(() -> parallel.evaluate(tree)).get();
+                Assertions.assertEquals(sequential.evaluate(sequential.parseInput(mixed)), result);
+                Assertions.assertEquals(result, parallel.evaluate(tree));
+            } finally {
+                other.shutdown();
+            }
+            Assertions.assertFalse(threads.isEmpty());
+            Assertions.assertTrue(threads.stream().allMatch(thread -> thread instanceof ForkJoinWorkerThread worker && worker.getPool() == pool));
+
+            // equal trees holding different memo tables do not share a plan
+            var memoA = new FunctionMemo(16);
+            var memoB = new FunctionMemo(16);
+            var withA = new MathParserBuilder().addDefaults().withMathContext(new MathContext(2000)).withFunctionMemo(memoA).withParallelEvaluation(pool).build();
+            var withB = new MathParserBuilder().addDefaults().withMathContext(new MathContext(2000)).withFunctionMemo(memoB).build();
+            var roots = "sqrt(2)*sqrt(3) + sqrt(5)*sqrt(7)";
+            withA.evaluate(withA.parseInput(roots));
+            withA.evaluate(withB.parseInput(roots));
+            Assertions.assertEquals(4, memoA.functionStats().get("sqrt").misses());
+            Assertions.assertEquals(4, memoB.functionStats().get("sqrt").misses());
+
+            Assertions.assertThrows(IllegalArgumentException.class, () -> new MathParserBuilder().withParallelEvaluation(pool, 0));
+        } finally {
+            pool.shutdown();
+        }
+    }
+}
@@ -0,0 +1,70 @@
+import com.mixfa.calculator.BoundedCache;
+import com.mixfa.calculator.MathParserBuilder;
+import com.mixfa.calculator.ValueFactory;
+import com.mixfa.calculator.exception.MathParsingException;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.stream.IntStream;
+
+public class ParseCacheTest {
+    @Test
+    public void test() throws MathParsingException {
+        var parser = new MathParserBuilder()
+                .addDefaults()
+                .withParseCache(16)
+                .build();
+
+        var first = parser.parseInput("2*(3+4)");
+        var second = parser.parseInput("2*(3+4)");
+        Assertions.assertSame(first, second);
+        Assertions.assertEquals(ValueFactory.toValue(14), first.calculate());
+        Assertions.assertEquals(ValueFactory.toValue(14), second.calculate());
+
+        Assertions.assertThrows(MathParsingException.class, () -> parser.parseInput("2*("));
+
+        var stats = parser.parseCacheStats().orElseThrow();
+        Assertions.assertEquals(1, stats.hits());
+        Assertions.assertEquals(2, stats.misses());
+        Assertions.assertEquals(1, stats.size());
+
+        Assertions.assertTrue(new MathParserBuilder().addDefaults().build().parseCacheStats().isEmpty());
+    }
+
+    @Test
+    public void testEviction() {
+        var cache = new BoundedCache<Integer, String>(4);
+        for (int i = 0; i < 4; i++)
+            cache.put(i, String.valueOf(i));
+
+        // touch 0 so 1 becomes the least recently used entry
+        cache.get(0);
+        cache.put(4, "4");
+
+        Assertions.assertNull(cache.get(1));
+        Assertions.assertEquals("0", cache.get(0));
+        Assertions.assertEquals(1, cache.stats().evictions());
+        Assertions.assertEquals(4, cache.size());
+    }
+
+    @Test
+    public void testConcurrentParsing() {
+        var parser = new MathParserBuilder()
+                .addDefaults()
+                .withParseCache(64)
+                .build();
+
+        IntStream.range(0, 10_000).parallel().forEach(i -> {
+            try {
+                var x = i % 100;
+                Assertions.assertEquals(ValueFactory.toValue(x * 2 + 1), parser.parseInput(x + "*2+1").calculate());
+            } catch (MathParsingException e) {
+                throw new RuntimeException(e);
+            }
+        });
+
+        var stats = parser.parseCacheStats().orElseThrow();
+        Assertions.assertEquals(10_000, stats.hits() + stats.misses());
+        Assertions.assertTrue(stats.size() <= 64);
+    }
+}
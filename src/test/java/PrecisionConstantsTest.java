@@ -0,0 +1,57 @@
+import ch.obermuhlner.math.big.BigDecimalMath;
+import com.mixfa.calculator.MathParser;
+import com.mixfa.calculator.MathParserBuilder;
+import com.mixfa.calculator.MathUtils;
+import com.mixfa.calculator.PrecisionConstants;
+import com.mixfa.calculator.ValueFactory;
+import com.mixfa.calculator.exception.MathParsingException;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.MathContext;
+import java.math.RoundingMode;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+public class PrecisionConstantsTest {
+    @Test
+    public void test() throws MathParsingException {
+        var mc = new MathContext(100);
+        var pi = PrecisionConstants.of(mc).pi();
+        Assertions.assertSame(pi, PrecisionConstants.of(100).pi());
+        Assertions.assertTrue(pi.toString().startsWith("3.14159265358979323846264338327950288419716939937510"));
+        Assertions.assertEquals(100, pi.precision());
+
+        // concurrent first callers of a precision nobody used yet all get one instance with the right digits
+        var instances = IntStream.range(0, 64).parallel()
+                .mapToObj(i -> PrecisionConstants.of(77).e())
+                .collect(Collectors.toCollection(() -> Collections.newSetFromMap(new IdentityHashMap<>())));
+        Assertions.assertEquals(1, instances.size());
+        Assertions.assertEquals(BigDecimalMath.e(new MathContext(77, RoundingMode.HALF_EVEN)), instances.iterator().next());
+
+        var parser = new MathParserBuilder().addDefaults().withMathContext(mc).build();
+        Assertions.assertEquals(pi, parser.parseInput("pi").calculate().asBigDecimal());
+
+        var sin = parser.parseInput("sin(1000)").calculate().asBigDecimal();
+        Assertions.assertTrue(sin.subtract(BigDecimalMath.sin(BigDecimal.valueOf(1000), mc)).abs().compareTo(new BigDecimal("1e-97")) < 0);
+
+        // arguments too large to reduce fail instead of computing 2pi to their number of digits
+        Assertions.assertThrows(ArithmeticException.class, () -> parser.parseInput("sin(1e1000000)").calculate());
+        Assertions.assertThrows(ArithmeticException.class, () -> parser.compile("cos(x)", "x").evaluate(ValueFactory.toValue("1e20000")));
+
+        // unlimited precision keeps the arithmetic exact, functions and constants fall back to the default precision
+        var unlimited = new MathParserBuilder().withMathContext(MathContext.UNLIMITED).addDefaults().build();
+        Assertions.assertEquals(PrecisionConstants.of(MathUtils.DEFAULT_MATH_CONTEXT).pi(), unlimited.parseInput("pi").calculate().asBigDecimal());
+        Assertions.assertEquals(MathUtils.DEFAULT_MATH_CONTEXT.getPrecision(), unlimited.parseInput("sqrt(2)").calculate().asBigDecimal().precision());
+        Assertions.assertEquals(ValueFactory.toValue(new BigInteger("1" + "0".repeat(60))), unlimited.parseInput("10^60").calculate());
+
+        var defaults = MathParser.defaultParser();
+        Assertions.assertEquals(0, defaults.parseInput("log10(1000)").calculate().asBigDecimal().compareTo(BigDecimal.valueOf(3)));
+        Assertions.assertEquals(0, defaults.parseInput("log2(8)").calculate().asBigDecimal().compareTo(BigDecimal.valueOf(3)));
+        Assertions.assertEquals(0, defaults.parseInput("ln(e)").calculate().asBigDecimal().round(new MathContext(30)).compareTo(BigDecimal.ONE));
+    }
+}
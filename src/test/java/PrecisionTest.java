@@ -0,0 +1,38 @@
+import com.mixfa.calculator.MathParserBuilder;
+import com.mixfa.calculator.ValueFactory;
+import com.mixfa.calculator.exception.MathParsingException;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.math.RoundingMode;
+
+public class PrecisionTest {
+    @Test
+    public void test() throws MathParsingException {
+        var low = new MathParserBuilder()
+                .addDefaults()
+                .withMathContext(MathContext.DECIMAL64)
+                .build();
+        Assertions.assertEquals(16, low.parseInput("sqrt(2)").calculate().asBigDecimal().precision());
+        Assertions.assertEquals(16, low.parseInput("2^0.5").calculate().asBigDecimal().precision());
+        Assertions.assertEquals(16, low.compile("x^0.5", "x").evaluate(ValueFactory.toValue(2)).asBigDecimal().precision());
+
+        var high = new MathParserBuilder()
+                .withMathContext(new MathContext(200, RoundingMode.HALF_EVEN))
+                .addDefaults()
+                .build();
+        var sqrt2 = high.parseInput("sqrt(2)").calculate().asBigDecimal();
+        Assertions.assertEquals(200, sqrt2.precision());
+        Assertions.assertTrue(sqrt2.multiply(sqrt2).subtract(BigDecimal.TWO).abs().compareTo(new BigDecimal("1e-195")) < 0);
+        Assertions.assertEquals(200, high.parseInput("sin(1/3)").calculate().asBigDecimal().precision());
+
+        var bytecode = new MathParserBuilder()
+                .addDefaults()
+                .withMathContext(MathContext.DECIMAL32)
+                .withBytecodeCompilation(true)
+                .build();
+        Assertions.assertEquals(7, bytecode.compile("x^0.5", "x").evaluate(ValueFactory.toValue(3)).asBigDecimal().precision());
+    }
+}
@@ -0,0 +1,44 @@
+import com.mixfa.calculator.MathComponent;
+import com.mixfa.calculator.MathParser;
+import com.mixfa.calculator.MathUtils;
+import com.mixfa.calculator.ValueFactory;
+import com.mixfa.calculator.exception.MathParsingException;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+
+public class RationalTest {
+    @Test
+    public void test() throws MathParsingException {
+        var parser = MathParser.defaultParser();
+
+        var ratio = ValueFactory.ratio(ValueFactory.toValue(6), ValueFactory.toValue(-8));
+        Assertions.assertEquals(new MathComponent.Value.RatioValue(ValueFactory.toValue(-3), ValueFactory.toValue(4)), ratio);
+        Assertions.assertEquals(ValueFactory.toValue(2), ValueFactory.ratio(ValueFactory.toValue(6), ValueFactory.toValue(3)));
+
+        // decimals and nested ratios are turned into integer parts
+        var decimal = new MathComponent.Value.RatioValue(ValueFactory.toValue(new BigDecimal("0.5")), ValueFactory.toValue(3));
+        Assertions.assertEquals(ValueFactory.toValue(1), decimal.numerator());
+        Assertions.assertEquals(ValueFactory.toValue(6), decimal.denominator());
+        Assertions.assertEquals(ValueFactory.toValue(6), ValueFactory.ratio(ValueFactory.one(), decimal));
+
+        Assertions.assertEquals(ValueFactory.ratio(ValueFactory.toValue(7), ValueFactory.toValue(12)), parser.parseInput("0.25+1/3").calculate());
+        Assertions.assertEquals(ValueFactory.ratio(ValueFactory.toValue(9), ValueFactory.toValue(4)), parser.parseInput("(2/3)^-2").calculate());
+        Assertions.assertEquals(ValueFactory.one(), parser.parseInput("(1/3)*3").calculate());
+        Assertions.assertThrows(ArithmeticException.class, () -> parser.parseInput("(1/3)/(1-1)").calculate());
+
+        // 1/(1*2) + 1/(2*3) + ... + 1/(n(n+1)) = n/(n+1)
+        var n = 10_000;
+        MathComponent.Value sum = ValueFactory.zero();
+        for (long i = 1; i <= n; i++)
+            sum = MathUtils.add(sum, ValueFactory.ratio(ValueFactory.one(), ValueFactory.toValue(i * (i + 1))));
+        Assertions.assertEquals(ValueFactory.ratio(ValueFactory.toValue(n), ValueFactory.toValue(n + 1)), sum);
+
+        // past the long range
+        var big = ValueFactory.ratio(ValueFactory.one(), ValueFactory.toValue(Long.MAX_VALUE));
+        var product = MathUtils.multiply(big, big);
+        Assertions.assertEquals(BigInteger.valueOf(Long.MAX_VALUE).pow(2), ((MathComponent.Value.RatioValue) product).denominator().asBigInteger());
+    }
+}
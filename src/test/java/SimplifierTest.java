@@ -0,0 +1,90 @@
+import com.mixfa.calculator.EvaluationMode;
+import com.mixfa.calculator.FunctionComponent;
+import com.mixfa.calculator.MathComponent;
+import com.mixfa.calculator.MathParser;
+import com.mixfa.calculator.MathParserBuilder;
+import com.mixfa.calculator.ValueFactory;
+import com.mixfa.calculator.exception.MathParsingException;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.math.MathContext;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class SimplifierTest {
+    @Test
+    public void test() throws MathParsingException {
+        var calls = new AtomicInteger();
+        var parser = new MathParserBuilder()
+                .addDefaults()
+                .addFunction(new FunctionComponent.FunctionComponent0("f", () -> {
+                    calls.incrementAndGet();
+                    return ValueFactory.toValue(5);
+                }))
+                .build();
+
+        // constants are folded, pure built-ins included
+        Assertions.assertEquals(ValueFactory.toValue(7), parser.parseInput("1+2*3"));
+        Assertions.assertInstanceOf(MathComponent.Value.class, parser.parseInput("pow(gcd(4, 6), 2)"));
+
+        // identities never evaluate the other operand
+        Assertions.assertInstanceOf(MathComponent.FunctionCall.class, parser.parseInput("f()*1"));
+        Assertions.assertInstanceOf(MathComponent.FunctionCall.class, parser.parseInput("0+f()/1"));
+        Assertions.assertInstanceOf(MathComponent.FunctionCall.class, parser.parseInput("--f()"));
+        Assertions.assertInstanceOf(MathComponent.FunctionCall.class, parser.parseInput("f()^1"));
+        Assertions.assertEquals(0, calls.get());
+
+        Assertions.assertEquals(ValueFactory.toValue(8), parser.parseInput("3 - -f()").calculate());
+        Assertions.assertEquals(ValueFactory.toValue(-2), parser.parseInput("3 + -f()").calculate());
+        Assertions.assertEquals(ValueFactory.toValue(-5), parser.parseInput("f()*-1").calculate());
+        Assertions.assertEquals(3, calls.get());
+
+        // annihilators keep the other operand, its calls are still made
+        Assertions.assertEquals(ValueFactory.zero(), parser.parseInput("f()*0").calculate());
+        Assertions.assertEquals(ValueFactory.one(), parser.parseInput("f()^0").calculate());
+        Assertions.assertEquals(5, calls.get());
+
+        var expression = MathParser.defaultParser().compile("(x*1+0)^1", "x");
+        Assertions.assertInstanceOf(MathComponent.Variable.class, expression.root());
+
+        // errors in constant parts still surface on evaluation, not while parsing
+        var division = parser.parseInput("(1/0)*f()");
+        Assertions.assertThrows(ArithmeticException.class, division::calculate);
+        Assertions.assertThrows(ArithmeticException.class, () -> parser.parseInput("(1/0)*0").calculate());
+        Assertions.assertThrows(ArithmeticException.class, () -> parser.parseInput("0*(1/0)").calculate());
+        Assertions.assertThrows(ArithmeticException.class, () -> parser.parseInput("(1/0)^0").calculate());
+
+        // and so do errors that depend on variables
+        var zeroDivision = MathParser.defaultParser().compile("0/x", "x");
+        Assertions.assertThrows(ArithmeticException.class, () -> zeroDivision.evaluate(ValueFactory.zero()));
+        Assertions.assertEquals(ValueFactory.zero(), zeroDivision.evaluate(ValueFactory.toValue(3)));
+        var doubles = MathParser.defaultParser().compile("0/x + x*0", EvaluationMode.DOUBLE, "x");
+        Assertions.assertTrue(Double.isNaN(doubles.evaluateDouble(0)));
+        Assertions.assertTrue(Double.isNaN(doubles.evaluateDouble(Double.POSITIVE_INFINITY)));
+        Assertions.assertEquals(0, doubles.evaluateDouble(2));
+
+        // annihilators drop operands that cannot fail, in exact mode only
+        var exactZero = MathParser.defaultParser().compile("(x*y - 3 + x)*0 + (x-y)^0", "x", "y");
+        Assertions.assertEquals(ValueFactory.one(), exactZero.root());
+        Assertions.assertInstanceOf(MathComponent.AnyOperation.class, MathParser.defaultParser().compile("(1/x)*0", "x").root());
+        Assertions.assertInstanceOf(MathComponent.AnyOperation.class, MathParser.defaultParser().compile("x*0", EvaluationMode.DOUBLE, "x").root());
+
+        // user functions are never called while parsing, whatever they throw surfaces on evaluation
+        var failing = new MathParserBuilder()
+                .addDefaults()
+                .addFunction(new FunctionComponent.FunctionComponent1("bad", arg -> {
+                    throw new IllegalArgumentException("bad argument " + arg);
+                }, null, true))
+                .build();
+        var bad = failing.parseInput("bad(1)+1");
+        Assertions.assertThrows(IllegalArgumentException.class, bad::calculate);
+
+        // expensive constant subtrees are left for evaluation
+        var precise = new MathParserBuilder().addDefaults().withMathContext(new MathContext(5000)).build();
+        Assertions.assertInstanceOf(MathComponent.FunctionCall.class, precise.parseInput("sin(1)"));
+        Assertions.assertInstanceOf(MathComponent.AnyOperation.class, precise.parseInput("3^1000000"));
+
+        // long chains fold without recursion
+        Assertions.assertEquals(ValueFactory.toValue(100_001), parser.parseInput("1" + "+1".repeat(100_000)));
+    }
+}
@@ -0,0 +1,46 @@
+import com.mixfa.StreamingEvaluator;
+import com.mixfa.calculator.MathParser;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+
+public class StreamingEvaluatorTest {
+    @Test
+    public void test() throws IOException, InterruptedException {
+        var input = new StringBuilder();
+        var expected = new StringBuilder();
+        for (int i = 0; i < 2000; i++) {
+            switch (i % 500) {
+                case 3 -> {
+                    input.append("1+\n");
+                    expected.append("error\n");
+                }
+                case 4 -> {
+                    input.append("\n");
+                    expected.append("\n");
+                }
+                default -> {
+                    input.append(i).append("*3\n");
+                    expected.append(i * 3).append('\n');
+                }
+            }
+        }
+
+        // a window much smaller than the input, results still come out in order
+        var out = new StringWriter();
+        var summary = new StreamingEvaluator(MathParser.defaultParser(), 4, 8)
+                .run(new BufferedReader(new StringReader(input.toString())), out);
+
+        Assertions.assertEquals(2000, summary.lines());
+        Assertions.assertEquals(4, summary.errors());
+        Assertions.assertTrue(summary.p50Nanos() <= summary.p99Nanos() && summary.p99Nanos() <= summary.maxNanos());
+        Assertions.assertEquals(expected.toString(), out.toString().replaceAll("error:[^\n]*", "error"));
+
+        var empty = new StreamingEvaluator(MathParser.defaultParser(), 1, 1).run(new BufferedReader(new StringReader("")), new StringWriter());
+        Assertions.assertEquals(0, empty.lines());
+    }
+}
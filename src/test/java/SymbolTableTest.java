@@ -0,0 +1,64 @@
+import com.mixfa.calculator.FunctionComponent;
+import com.mixfa.calculator.MathConstant;
+import com.mixfa.calculator.MathParser;
+import com.mixfa.calculator.MathParserBuilder;
+import com.mixfa.calculator.SymbolTable;
+import com.mixfa.calculator.ValueFactory;
+import com.mixfa.calculator.exception.MathParsingException;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.math.MathContext;
+import java.util.List;
+import java.util.stream.IntStream;
+
+public class SymbolTableTest {
+    @Test
+    public void test() throws MathParsingException {
+        var functions = IntStream.range(0, 5_000)
+                .mapToObj(i -> (FunctionComponent) new FunctionComponent.FunctionComponent1("f" + i, value -> ValueFactory.toValue(i)))
+                .toList();
+        var constants = IntStream.range(0, 5_000)
+                .mapToObj(i -> new MathConstant("c" + i, ValueFactory.toValue(i)))
+                .toList();
+        var shared = SymbolTable.defaults().withLayer(functions, constants);
+
+        Assertions.assertEquals(5_000, shared.functionsCount());
+        Assertions.assertEquals(5_000, shared.symbolsCount());
+        Assertions.assertSame(SymbolTable.defaults(), shared.parent());
+        Assertions.assertNull(shared.function("f5000"));
+        Assertions.assertNull(shared.function("f"));
+        Assertions.assertNotNull(shared.function("sin"));
+
+        var tenant = new MathParserBuilder()
+                .withSymbols(shared)
+                .addConstant(new MathConstant("c7", ValueFactory.toValue(70)))
+                .build();
+        Assertions.assertSame(shared, tenant.symbols().parent());
+        Assertions.assertEquals(ValueFactory.toValue(4_242 + 70 + 3), tenant.parseInput("f4242(1)+c7+c3").calculate());
+        Assertions.assertThrows(MathParsingException.class, () -> tenant.parseInput("f5000(1)"));
+        Assertions.assertThrows(MathParsingException.class, () -> tenant.parseInput("c"));
+
+        // variables shadow constants with the same name
+        Assertions.assertEquals(ValueFactory.toValue(5), tenant.compile("c7+2", "c7").evaluate(ValueFactory.toValue(3)));
+
+        Assertions.assertSame(SymbolTable.defaults(), MathParser.defaultParser().symbols());
+        Assertions.assertSame(SymbolTable.defaults(), new MathParserBuilder().addDefaults().build().symbols());
+        Assertions.assertNull(SymbolTable.of(List.of(), List.of()).symbol("pi"));
+    }
+
+    @Test
+    public void testDefaultsCache() {
+        var standard = SymbolTable.defaults();
+        var precise = SymbolTable.defaults(new MathContext(60));
+        Assertions.assertSame(precise, SymbolTable.defaults(new MathContext(60)));
+
+        // parsers built with many different precisions keep only the recent tables
+        for (int precision = 100; precision < 200; precision++)
+            SymbolTable.defaults(new MathContext(precision));
+
+        Assertions.assertNotSame(precise, SymbolTable.defaults(new MathContext(60)));
+        Assertions.assertSame(standard, SymbolTable.defaults());
+        Assertions.assertSame(SymbolTable.defaults(MathContext.DECIMAL64), SymbolTable.defaults(MathContext.DECIMAL64));
+    }
+}
@@ -0,0 +1,33 @@
+import com.mixfa.calculator.Tokenizer;
+import com.mixfa.calculator.Tokens;
+import com.mixfa.calculator.exception.MathParsingException;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import static com.mixfa.calculator.Tokens.Type.*;
+
+public class TokenizerTest {
+    @Test
+    public void test() throws MathParsingException {
+        var tokens = Tokenizer.tokenize(" gcd(12, 2.5e-3)^x_1 - .5");
+
+        var expectedTypes = new Tokens.Type[]{
+                IDENTIFIER, LEFT_BRACKET, NUMBER, COMMA, NUMBER, RIGHT_BRACKET, CARET, IDENTIFIER, MINUS, NUMBER
+        };
+        var expectedTexts = new String[]{"gcd", "(", "12", ",", "2.5e-3", ")", "^", "x_1", "-", ".5"};
+
+        Assertions.assertEquals(expectedTypes.length, tokens.size());
+        for (int i = 0; i < tokens.size(); i++) {
+            Assertions.assertEquals(expectedTypes[i], tokens.type(i));
+            Assertions.assertEquals(expectedTexts[i], tokens.text(i));
+        }
+        Assertions.assertEquals(1, tokens.start(0));
+        Assertions.assertEquals(4, tokens.end(0));
+
+        var exponentLike = Tokenizer.tokenize("2e");
+        Assertions.assertEquals(NUMBER, exponentLike.type(0));
+        Assertions.assertEquals(IDENTIFIER, exponentLike.type(1));
+
+        Assertions.assertThrows(MathParsingException.class, () -> Tokenizer.tokenize("1 # 2"));
+    }
+}